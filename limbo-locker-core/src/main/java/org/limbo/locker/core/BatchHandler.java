@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import java.util.List;
+
+/**
+ * 批量处理回调，由{@link LockBatcher}在持有锁时调用，一次处理同名锁下排队的多个请求。
+ *
+ * @param <R> 请求类型
+ * @param <V> 处理结果类型
+ * @author Brozen
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface BatchHandler<R, V> {
+
+    /**
+     * 批量处理请求
+     * @param lockName 锁名称
+     * @param requests 排队的请求，按提交顺序排列
+     * @return 处理结果，需与请求一一对应，数量及顺序与请求相同
+     */
+    List<V> handle(String lockName, List<R> requests) throws Throwable;
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量逐个加锁执行的结果，参考{@link LockTemplate#invokeEachInLock}。
+ *
+ * @param <E> 元素类型
+ * @author Brozen
+ * @since 1.0
+ */
+@Getter
+@ToString
+public class BulkLockResult<E> {
+
+    /**
+     * 加锁成功并执行成功的元素
+     */
+    private final List<E> succeeded = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * 锁被占用，未执行的元素
+     */
+    private final List<E> contended = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * 加锁或执行抛出异常的元素，及对应的异常
+     */
+    private final Map<E, Throwable> failed = Collections.synchronizedMap(new LinkedHashMap<>());
+
+
+    /**
+     * 是否所有元素都执行成功
+     */
+    public boolean isAllSucceeded() {
+        return contended.isEmpty() && failed.isEmpty();
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 默认的锁key编码器。为锁名称增加应用命名空间，并将超出长度阈值的锁名称替换为定长摘要，减少Redis key及pub/sub频道名的内存占用。<br/>
+ * 摘要发生碰撞时，只会导致两个锁名共用一个锁，产生误竞争，不会破坏互斥。<br/>
+ * 锁名称中包含Redis Cluster哈希标签"{tag}"时，摘要key会原样保留哈希标签，保证摘要前后落在同一个slot上。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Getter
+public class DefaultLockKeyEncoder implements LockKeyEncoder {
+
+    /**
+     * 摘要key的标记
+     */
+    private static final String DIGEST_MARK = "#";
+
+    /**
+     * 摘要的长度，128位摘要base64url编码后为22个字符
+     */
+    private static final int DIGEST_LENGTH = 22;
+
+    /**
+     * 应用命名空间，为空时不增加命名空间
+     */
+    private final String namespace;
+
+    /**
+     * 锁名称长度阈值，超过时替换为摘要。小于等于0时不替换
+     */
+    private final int digestThreshold;
+
+    /**
+     * 摘要key到锁名称的反查表，为null时不记录
+     */
+    private final Cache<String, String> reverseMap;
+
+
+    /**
+     * @param namespace 应用命名空间，为空时不增加命名空间
+     * @param digestThreshold 锁名称长度阈值，超过时替换为摘要。小于等于0时不替换
+     * @param reverseMapSize 反查表记录数量上限，小于等于0时不记录
+     */
+    public DefaultLockKeyEncoder(String namespace, int digestThreshold, int reverseMapSize) {
+        this.namespace = StringUtils.isBlank(namespace) ? "" : namespace + ":";
+        this.digestThreshold = digestThreshold;
+        this.reverseMap = reverseMapSize > 0
+                ? CacheBuilder.newBuilder().maximumSize(reverseMapSize).build()
+                : null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * @param lockName 锁名称
+     * @return
+     */
+    @Override
+    public String encode(String lockName) {
+        if (digestThreshold <= 0 || lockName.length() <= digestThreshold) {
+            return namespace + lockName;
+        }
+
+        String key = namespace + hashTagOf(lockName) + DIGEST_MARK + digest(lockName);
+        // 已记录时不重复写入
+        if (reverseMap != null) {
+            reverseMap.asMap().putIfAbsent(key, lockName);
+        }
+        return key;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * @param key Redis中实际使用的key
+     * @return
+     */
+    @Override
+    public String decode(String key) {
+        if (!key.startsWith(namespace)) {
+            return null;
+        }
+
+        String name = key.substring(namespace.length());
+        String digest = name.substring(hashTagOf(name).length());
+        if (!digest.startsWith(DIGEST_MARK) || digest.length() != DIGEST_MARK.length() + DIGEST_LENGTH) {
+            return name;
+        }
+        return reverseMap == null ? null : reverseMap.getIfPresent(key);
+    }
+
+
+    /**
+     * 获取锁名称中的Redis Cluster哈希标签，与Redis规则一致：第一个"{"与其后第一个"}"之间的内容非空时有效
+     * @return 包括花括号的哈希标签，没有有效的哈希标签时返回空字符串
+     */
+    static String hashTagOf(String lockName) {
+        int start = lockName.indexOf('{');
+        if (start < 0) {
+            return "";
+        }
+
+        int end = lockName.indexOf('}', start + 1);
+        if (end <= start + 1) {
+            return "";
+        }
+        return lockName.substring(start, end + 1);
+    }
+
+
+    /**
+     * 计算锁名称的定长摘要，128位murmur3，base64url编码
+     */
+    private String digest(String lockName) {
+        byte[] hash = Hashing.murmur3_128().hashString(lockName, StandardCharsets.UTF_8).asBytes();
+        return BaseEncoding.base64Url().omitPadding().encode(hash);
+    }
+
+}
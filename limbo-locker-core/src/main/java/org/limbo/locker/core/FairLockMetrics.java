@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 公平锁的等待统计，记录等待者在队列中的等待时长。队列长度可通过{@link LockTemplate#getFairLockQueueDepth(String)}实时查询。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@ToString
+public class FairLockMetrics {
+
+    /**
+     * 加锁成功次数
+     */
+    private final LongAdder acquiredCount = new LongAdder();
+
+    /**
+     * 等待超时次数
+     */
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * 加锁成功的累计等待时长，单位纳秒
+     */
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    /**
+     * 加锁成功的最大等待时长，单位纳秒
+     */
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+
+    /**
+     * 记录一次加锁等待
+     * @param waitNanos 等待时长，单位纳秒
+     * @param acquired 是否加锁成功
+     */
+    void record(long waitNanos, boolean acquired) {
+        if (acquired) {
+            acquiredCount.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        } else {
+            timeoutCount.increment();
+        }
+    }
+
+
+    /**
+     * 加锁成功次数
+     */
+    public long getAcquiredCount() {
+        return acquiredCount.sum();
+    }
+
+
+    /**
+     * 等待超时次数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+
+    /**
+     * 加锁成功的平均等待时长，单位毫秒
+     */
+    public double getAverageWaitMillis() {
+        long count = acquiredCount.sum();
+        return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum()) / count / 1000;
+    }
+
+
+    /**
+     * 加锁成功的最大等待时长，单位毫秒
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+
+    /**
+     * 重置统计
+     */
+    public void reset() {
+        acquiredCount.reset();
+        timeoutCount.reset();
+        totalWaitNanos.reset();
+        maxWaitNanos.reset();
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按key串行的分布式锁执行器。同一key的任务在线程池中按提交顺序串行执行，不同key的任务并行执行。
+ * 每个key在一次排空中只加一次分布式锁，连续执行排队的多个任务，提交任务的线程不会阻塞。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class KeyedLockExecutor {
+
+    /**
+     * 加锁模板
+     */
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 执行任务的线程池，应为有界线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 一次加锁最多连续执行的任务数量，超出后释放锁并重新调度，防止热点key长期占用线程
+     */
+    @Getter
+    @Setter
+    private int maxDrainSize = 100;
+
+    /**
+     * 加锁失败重试次数
+     */
+    @Getter
+    @Setter
+    private int retryTimes = 3;
+
+    /**
+     * 加锁等待时间，单位毫秒
+     */
+    @Getter
+    @Setter
+    private long waitTime = 100;
+
+    /**
+     * 加锁成功最大持有时间，单位毫秒，小于等于0时在执行完成前不自动释放
+     */
+    @Getter
+    @Setter
+    private long holdTime = TimeUnit.SECONDS.toMillis(100);
+
+    /**
+     * 各key的任务队列，队列存在时说明该key已被调度
+     */
+    private final Map<String, Queue<KeyedTask<?>>> queues = new ConcurrentHashMap<>();
+
+
+    public KeyedLockExecutor(LockTemplate lockTemplate, Executor executor) {
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+
+    /**
+     * 提交任务，同一key的任务按提交顺序在分布式锁中串行执行
+     * @param key 任务key，作为锁名称
+     * @param task 任务
+     * @return 任务执行结果
+     */
+    public <T> CompletableFuture<T> submit(String key, ThrowableSupplier<T> task) {
+        KeyedTask<T> keyedTask = new KeyedTask<>(Objects.requireNonNull(task, "task"));
+        boolean[] created = new boolean[1];
+        Queue<KeyedTask<?>> queue = queues.compute(key, (k, q) -> {
+            if (q == null) {
+                q = new ConcurrentLinkedQueue<>();
+                created[0] = true;
+            }
+            q.add(keyedTask);
+            return q;
+        });
+
+        // 首个任务负责调度，后续任务由正在进行的排空执行
+        if (created[0]) {
+            schedule(key, queue);
+        }
+        return keyedTask.result;
+    }
+
+
+    /**
+     * 提交无返回值的任务
+     * @param key 任务key，作为锁名称
+     * @param task 任务
+     * @return 任务执行完成的通知
+     */
+    public CompletableFuture<Void> execute(String key, ThrowableRunner task) {
+        Objects.requireNonNull(task, "task");
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+
+    /**
+     * 调度一次排空，线程池拒绝时，该key排队的任务全部失败
+     */
+    private void schedule(String key, Queue<KeyedTask<?>> queue) {
+        try {
+            executor.execute(() -> drain(key, queue));
+        } catch (RejectedExecutionException e) {
+            // 先移除队列，保证之后提交的任务进入新队列，再令已排队的任务失败
+            queues.remove(key, queue);
+            fail(queue, e);
+        }
+    }
+
+
+    /**
+     * 加锁，并连续执行排队的任务。加锁失败或访问Redis异常时，本批次的任务失败。
+     * 结束后队列仍有任务时重新调度，否则移除队列。
+     */
+    private void drain(String key, Queue<KeyedTask<?>> queue) {
+        RLock lock = null;
+        Throwable failure = null;
+        try {
+            lock = lockTemplate.getLock(key);
+            if (!lockTemplate.tryLock(lock, retryTimes, waitTime, holdTime)) {
+                failure = new LockException("申请锁超时 name=" + key);
+            }
+        } catch (RuntimeException e) {
+            log.warn("[redisson.locker] 串行执行加锁异常 name={}", key, e);
+            failure = e;
+        }
+
+        KeyedTask<?> task;
+        if (failure == null) {
+            try {
+                for (int i = Math.max(maxDrainSize, 1); i > 0 && (task = queue.poll()) != null; i--) {
+                    task.run();
+                }
+            } finally {
+                lockTemplate.release(lock);
+            }
+        } else {
+            for (int i = Math.max(maxDrainSize, 1); i > 0 && (task = queue.poll()) != null; i--) {
+                task.result.completeExceptionally(failure);
+            }
+        }
+
+        // 队列为空时移除，移除与入队互斥；移除失败说明仍有任务排队，需再次调度
+        if (queues.computeIfPresent(key, (k, q) -> q == queue && q.isEmpty() ? null : q) == queue) {
+            schedule(key, queue);
+        }
+    }
+
+
+    /**
+     * 令队列中的任务全部失败
+     */
+    private void fail(Queue<KeyedTask<?>> queue, Throwable cause) {
+        KeyedTask<?> task;
+        while ((task = queue.poll()) != null) {
+            task.result.completeExceptionally(cause);
+        }
+    }
+
+
+    /**
+     * 排队中的任务
+     */
+    private static class KeyedTask<T> {
+
+        final ThrowableSupplier<T> task;
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        KeyedTask(ThrowableSupplier<T> task) {
+            this.task = task;
+        }
+
+        /**
+         * 执行任务，任务异常时只影响自身的执行结果
+         */
+        void run() {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+}
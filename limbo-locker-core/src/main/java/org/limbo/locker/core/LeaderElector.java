@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 领导选举器，每个分组通过一把Redis锁作为领导租约，持有租约的节点为领导，定期续期。<br/>
+ * 判断本节点是否为领导只读取本地状态，不访问Redis：除了当选状态，还要求距上次竞选或续期成功（按发出请求的时间计算）
+ * 未超过扣除时钟漂移后的租约时长，续期阻塞或失败时，本节点在租约到期前即不再认为自己是领导。<br/>
+ * 跟随节点订阅领导锁的解锁通知，领导主动卸任时立即竞选；领导宕机时租约到期不会发出通知，跟随节点每个租约周期兜底竞选一次。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class LeaderElector {
+
+    /**
+     * 领导锁名前缀
+     */
+    public static final String LEADER_LOCK_PREFIX = "limbo_locker__leader:";
+
+    /**
+     * 续期脚本，锁仍由指定持有者持有时刷新有效期并返回1，否则返回0
+     */
+    private static final String RENEW_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 领导租约时长，单位毫秒
+     */
+    private final long leaseTime;
+
+    /**
+     * 时钟漂移系数，租约有效期会扣除 租约时长 * clockDriftFactor + 2ms 的时钟漂移。默认0.01
+     */
+    @Setter
+    @Getter
+    private double clockDriftFactor = 0.01;
+
+    /**
+     * 本节点在Redis中的持有者ID，领导租约不由线程持有
+     */
+    private final long ownerId;
+
+    /**
+     * 各分组的领导状态
+     */
+    private final Map<String, Leadership> leaderships = new ConcurrentHashMap<>();
+
+    /**
+     * 续期及兜底竞选的调度器
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "limbo-leader-elector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * @param lockTemplate 加锁模板，领导锁使用模板的Redisson客户端、分片路由及锁key编码
+     * @param leaseTime 领导租约时长，单位毫秒，领导每1/3租约时长续期一次
+     */
+    public LeaderElector(LockTemplate lockTemplate, long leaseTime) {
+        if (leaseTime <= 0) {
+            throw new IllegalArgumentException("leaseTime must be positive");
+        }
+
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.leaseTime = leaseTime;
+        this.ownerId = lockTemplate.nextOwnerId();
+    }
+
+
+    /**
+     * 本节点是否为分组的领导。首次判断某分组时加入竞选，会同步竞选一次，之后只读取本地状态。
+     * @param group 领导分组名称
+     */
+    public boolean isLeader(String group) {
+        Leadership leadership = leaderships.get(group);
+        if (leadership == null) {
+            Leadership created = new Leadership(lockTemplate.lookupLock(lockTemplate.encodeKey(LEADER_LOCK_PREFIX + group)));
+            leadership = leaderships.putIfAbsent(group, created);
+            if (leadership == null) {
+                leadership = created;
+                join(leadership);
+            }
+        }
+        return leadership.leader && isLeaseValid(leadership);
+    }
+
+
+    /**
+     * 领导租约是否仍在有效期内，有效期从上次竞选或续期发出请求时开始计算，并扣除时钟漂移
+     */
+    private boolean isLeaseValid(Leadership leadership) {
+        long drift = (long) (leaseTime * clockDriftFactor) + 2;
+        return System.nanoTime() - leadership.renewedAt < TimeUnit.MILLISECONDS.toNanos(leaseTime - drift);
+    }
+
+
+    /**
+     * 卸任所有分组的领导并停止调度器，卸任会发出解锁通知，其他节点收到后立即竞选
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Leadership leadership : leaderships.values()) {
+            if (leadership.topic != null) {
+                leadership.topic.removeAllListeners();
+            }
+
+            synchronized (leadership) {
+                if (leadership.leader) {
+                    leadership.leader = false;
+                    leadership.lock.unlockAsync(ownerId);
+                    log.info("[redisson.locker] 卸任领导 name={}", leadership.lock.getName());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * 加入分组竞选：订阅解锁通知，同步竞选一次，并开始定期续期或兜底竞选
+     */
+    private void join(Leadership leadership) {
+        // 解锁通知由锁所在的分片发布
+        RedissonClient client = lockTemplate.routeClient(leadership.lock.getName());
+        leadership.topic = client.getTopic(NegativeLockCache.getChannelName(leadership.lock.getName()), LongCodec.INSTANCE);
+        leadership.topic.addListenerAsync(Long.class, (channel, msg) -> scheduler.execute(() -> campaign(leadership)));
+
+        campaign(leadership);
+
+        long period = Math.max(leaseTime / 3, 1);
+        scheduler.scheduleWithFixedDelay(() -> maintain(leadership), period, period, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * 领导续期；跟随者距上次竞选超过一个租约周期时兜底竞选，应对领导宕机后租约静默过期
+     */
+    private void maintain(Leadership leadership) {
+        try {
+            if (leadership.leader) {
+                renew(leadership);
+            } else if (System.nanoTime() - leadership.campaignedAt >= TimeUnit.MILLISECONDS.toNanos(leaseTime)) {
+                campaign(leadership);
+            }
+        } catch (Throwable e) {
+            log.warn("[redisson.locker] 维护领导租约失败 name={}", leadership.lock.getName(), e);
+        }
+    }
+
+
+    /**
+     * 竞选领导，立即尝试获取领导锁，不等待
+     */
+    private void campaign(Leadership leadership) {
+        synchronized (leadership) {
+            if (leadership.leader) {
+                return;
+            }
+
+            long startAt = System.nanoTime();
+            leadership.campaignedAt = startAt;
+            try {
+                if (leadership.lock.tryLockAsync(0, leaseTime, TimeUnit.MILLISECONDS, ownerId).get()) {
+                    leadership.renewedAt = startAt;
+                    leadership.leader = true;
+                    log.info("[redisson.locker] 当选领导 name={}", leadership.lock.getName());
+                }
+            } catch (ExecutionException e) {
+                log.warn("[redisson.locker] 竞选领导失败 name={}", leadership.lock.getName(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * 续期领导租约。租约已不被本节点持有时卸任；续期出错且距上次续期成功已超过租约时长时，无法确认租约，同样卸任
+     */
+    private void renew(Leadership leadership) {
+        synchronized (leadership) {
+            long startAt = System.nanoTime();
+            boolean renewed;
+            try {
+                RedissonClient client = lockTemplate.routeClient(leadership.lock.getName());
+                Long result = client.getScript(LongCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                        RScript.ReturnType.INTEGER, Collections.singletonList(leadership.lock.getName()),
+                        leaseTime, client.getId() + ":" + ownerId);
+                renewed = result != null && result == 1;
+            } catch (Throwable e) {
+                log.warn("[redisson.locker] 续期领导租约出错 name={}", leadership.lock.getName(), e);
+                renewed = System.nanoTime() - leadership.renewedAt < TimeUnit.MILLISECONDS.toNanos(leaseTime);
+                if (renewed) {
+                    return;
+                }
+            }
+
+            if (renewed) {
+                leadership.renewedAt = startAt;
+            } else {
+                leadership.leader = false;
+                leadership.campaignedAt = System.nanoTime();
+                log.warn("[redisson.locker] 领导租约已失效，卸任领导 name={}", leadership.lock.getName());
+            }
+        }
+    }
+
+
+    /**
+     * 分组的领导状态
+     */
+    private static class Leadership {
+
+        /**
+         * 领导锁
+         */
+        final RLock lock;
+
+        /**
+         * 本节点是否为领导
+         */
+        volatile boolean leader;
+
+        /**
+         * 上次竞选时间，System.nanoTime()
+         */
+        volatile long campaignedAt;
+
+        /**
+         * 上次竞选或续期成功的请求发出时间，System.nanoTime()
+         */
+        volatile long renewedAt;
+
+        /**
+         * 领导锁的解锁通知频道
+         */
+        volatile RTopic topic;
+
+        Leadership(RLock lock) {
+            this.lock = lock;
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 写合并加锁执行器。同名锁的请求在本节点排队，由抢到排空权的调用者加一次锁，在同一个临界区内分批处理所有排队请求，
+ * 每个调用者仍然得到各自的处理结果。高频更新同一聚合时，每次更新的加锁次数可由1次降低到1/N次。
+ *
+ * @param <R> 请求类型
+ * @param <V> 处理结果类型
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class LockBatcher<R, V> {
+
+    /**
+     * 加锁模板
+     */
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 批量处理回调
+     */
+    private final BatchHandler<R, V> handler;
+
+    /**
+     * 单批次最大请求数量，超出的请求在同一次加锁内由下一批次处理
+     */
+    @Getter
+    @Setter
+    private int maxBatchSize = 100;
+
+    /**
+     * 一次加锁最多处理的批次数量，超出后释放锁，重新加锁处理剩余请求，防止持有锁的时间超过持有时间
+     */
+    @Getter
+    @Setter
+    private int maxBatchesPerLock = 10;
+
+    /**
+     * 加锁失败重试次数
+     */
+    @Getter
+    @Setter
+    private int retryTimes = 3;
+
+    /**
+     * 加锁等待时间，单位毫秒
+     */
+    @Getter
+    @Setter
+    private long waitTime = 100;
+
+    /**
+     * 加锁成功最大持有时间，单位毫秒，小于等于0时在处理完成前不自动释放
+     */
+    @Getter
+    @Setter
+    private long holdTime = TimeUnit.SECONDS.toMillis(100);
+
+    /**
+     * 各锁名称的排队请求
+     */
+    private final Map<String, Batch<R, V>> batches = new ConcurrentHashMap<>();
+
+
+    public LockBatcher(LockTemplate lockTemplate, BatchHandler<R, V> handler) {
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.handler = Objects.requireNonNull(handler, "handler");
+    }
+
+
+    /**
+     * 提交请求，并等待处理结果。请求会与同名锁下排队的其他请求合并，在一次加锁中批量处理。
+     * @param lockName 锁名称
+     * @param request 请求
+     * @return 该请求的处理结果
+     */
+    public V submit(String lockName, R request) {
+        Pending<R, V> pending = new Pending<>(request);
+        Batch<R, V> batch = batches.compute(lockName, (name, b) -> {
+            b = b == null ? new Batch<>() : b;
+            b.queue.add(pending);
+            return b;
+        });
+
+        drain(lockName, batch);
+
+        try {
+            return pending.result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new LockException("批量处理失败 name=" + lockName, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockException("等待批量处理结果时线程被中断 name=" + lockName, e);
+        }
+    }
+
+
+    /**
+     * 尝试获取排空权，获取成功时加锁处理排队请求。排空结束后队列仍有请求时重新加锁继续排空，防止请求滞留。
+     */
+    private void drain(String lockName, Batch<R, V> batch) {
+        while (batch.draining.compareAndSet(false, true)) {
+            try {
+                drainInLock(lockName, batch);
+            } finally {
+                batch.draining.set(false);
+            }
+
+            // 队列为空时移除，移除与入队互斥；移除失败说明有请求在排空结束前入队，需再次排空
+            Batch<R, V> current = batches.computeIfPresent(lockName,
+                    (name, b) -> b == batch && b.queue.isEmpty() ? null : b);
+            if (current != batch) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * 加锁，并在一个临界区内分批处理排队请求，最多处理{@link #maxBatchesPerLock}个批次。
+     * 加锁失败或访问Redis异常时，排队的请求全部失败。
+     */
+    private void drainInLock(String lockName, Batch<R, V> batch) {
+        RLock lock;
+        boolean locked;
+        try {
+            lock = lockTemplate.getLock(lockName);
+            locked = lockTemplate.tryLock(lock, retryTimes, waitTime, holdTime);
+        } catch (RuntimeException e) {
+            log.warn("[redisson.locker] 批量处理加锁异常 name={}", lockName, e);
+            fail(batch, e);
+            return;
+        }
+
+        if (!locked) {
+            fail(batch, new LockException("申请锁超时 name=" + lockName));
+            return;
+        }
+
+        try {
+            List<Pending<R, V>> pendings;
+            for (int i = Math.max(maxBatchesPerLock, 1); i > 0 && !(pendings = poll(batch)).isEmpty(); i--) {
+                handle(lockName, pendings);
+            }
+        } finally {
+            lockTemplate.release(lock);
+        }
+    }
+
+
+    /**
+     * 令队列中的请求全部失败
+     */
+    private void fail(Batch<R, V> batch, Throwable cause) {
+        Pending<R, V> pending;
+        while ((pending = batch.queue.poll()) != null) {
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+
+    /**
+     * 处理一个批次，处理失败时，批次内所有请求均失败
+     */
+    private void handle(String lockName, List<Pending<R, V>> pendings) {
+        List<R> requests = new ArrayList<>(pendings.size());
+        pendings.forEach(p -> requests.add(p.request));
+
+        try {
+            List<V> results = handler.handle(lockName, requests);
+            if (results == null || results.size() != pendings.size()) {
+                throw new LockException("批量处理结果数量与请求数量不一致 name=" + lockName);
+            }
+
+            for (int i = 0; i < pendings.size(); i++) {
+                pendings.get(i).result.complete(results.get(i));
+            }
+        } catch (Throwable e) {
+            log.warn("[redisson.locker] 批量处理失败 name={} size={}", lockName, pendings.size(), e);
+            pendings.forEach(p -> p.result.completeExceptionally(e));
+        }
+    }
+
+
+    /**
+     * 从队列中取出一个批次的请求
+     */
+    private List<Pending<R, V>> poll(Batch<R, V> batch) {
+        int batchSize = Math.max(maxBatchSize, 1);
+        List<Pending<R, V>> pendings = new ArrayList<>();
+        Pending<R, V> pending;
+        while (pendings.size() < batchSize && (pending = batch.queue.poll()) != null) {
+            pendings.add(pending);
+        }
+        return pendings;
+    }
+
+
+    /**
+     * 同名锁的排队请求
+     */
+    private static class Batch<R, V> {
+
+        /**
+         * 排队的请求
+         */
+        final Queue<Pending<R, V>> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 是否有调用者正在排空队列
+         */
+        final AtomicBoolean draining = new AtomicBoolean(false);
+
+    }
+
+
+    /**
+     * 排队中的请求
+     */
+    private static class Pending<R, V> {
+
+        final R request;
+
+        final CompletableFuture<V> result = new CompletableFuture<>();
+
+        Pending(R request) {
+            this.request = request;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.redisson.api.RLock;
+
+/**
+ * 锁对象缓存，缓存热点锁名对应的{@link RLock}，避免每次加锁都重新生成锁对象。<br/>
+ * Redisson的锁对象不保存持有线程状态，可在多线程间复用。缓存有容量上限，超出后按最近最少使用淘汰。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class LockCache {
+
+    /**
+     * 锁对象缓存，key为锁名称，联锁则是锁名称列表
+     */
+    private final Cache<Object, RLock> cache;
+
+
+    /**
+     * @param maximumSize 缓存的锁对象数量上限
+     */
+    public LockCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+
+    /**
+     * 获取缓存的锁对象，不存在时返回null
+     * @param key 锁名称，联锁则是锁名称列表
+     */
+    public RLock get(Object key) {
+        return cache.getIfPresent(key);
+    }
+
+
+    /**
+     * 缓存锁对象
+     * @param key 锁名称，联锁则是锁名称列表
+     * @param lock 锁对象
+     */
+    public void put(Object key, RLock lock) {
+        cache.put(key, lock);
+    }
+
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+
+    /**
+     * 当前缓存的锁对象数量
+     */
+    public long size() {
+        return cache.size();
+    }
+
+
+    /**
+     * 缓存命中、未命中、淘汰等统计数据
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+}
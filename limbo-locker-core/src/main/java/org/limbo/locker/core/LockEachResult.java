@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 批量尝试加独立锁的结果，参考{@link MultiLockTemplate#tryLockEach}。释放时需交给{@link MultiLockTemplate#unlockEach}。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@ToString
+public class LockEachResult {
+
+    /**
+     * 每个锁名称的加锁结果，按申请顺序排列
+     */
+    @Getter
+    private final Map<String, Boolean> results;
+
+    /**
+     * 加锁成功的锁名称在Redis中的key
+     */
+    final Map<String, String> acquiredKeys;
+
+    /**
+     * 锁在Redis中的持有者标识
+     */
+    final String ownerId;
+
+    /**
+     * 加锁时的持有时间，单位毫秒，重入的锁释放一层后恢复该持有时间
+     */
+    final long leaseTime;
+
+
+    LockEachResult(Map<String, Boolean> results, Map<String, String> acquiredKeys, String ownerId, long leaseTime) {
+        this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+        this.acquiredKeys = acquiredKeys;
+        this.ownerId = ownerId;
+        this.leaseTime = leaseTime;
+    }
+
+
+    /**
+     * 合并另一次批量加锁的结果，两次加锁需使用相同的持有者
+     * @param other 另一次批量加锁的结果
+     * @return 合并后的结果
+     */
+    LockEachResult merge(LockEachResult other) {
+        Map<String, Boolean> mergedResults = new LinkedHashMap<>(results);
+        mergedResults.putAll(other.results);
+        Map<String, String> mergedKeys = new LinkedHashMap<>(acquiredKeys);
+        mergedKeys.putAll(other.acquiredKeys);
+        return new LockEachResult(mergedResults, mergedKeys, ownerId, leaseTime);
+    }
+
+
+    /**
+     * 截取部分加锁成功的锁
+     * @param names 锁名称
+     * @return 只包含指定锁名称中加锁成功的锁的结果
+     */
+    LockEachResult subset(Collection<String> names) {
+        Map<String, Boolean> subResults = new LinkedHashMap<>();
+        Map<String, String> subKeys = new LinkedHashMap<>();
+        for (String name : names) {
+            String key = acquiredKeys.get(name);
+            if (key != null) {
+                subResults.put(name, true);
+                subKeys.put(name, key);
+            }
+        }
+        return new LockEachResult(subResults, subKeys, ownerId, leaseTime);
+    }
+
+
+    /**
+     * 加锁成功的锁名称
+     */
+    public List<String> getAcquired() {
+        return results.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * 加锁失败的锁名称
+     */
+    public List<String> getFailed() {
+        return results.entrySet().stream()
+                .filter(e -> !e.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -28,4 +28,8 @@ public class LockException extends RuntimeException {
         super(message);
     }
 
+    public LockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
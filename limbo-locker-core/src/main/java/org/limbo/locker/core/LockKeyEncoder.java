@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+/**
+ * 锁key编码器，将计算出的锁名称编码为Redis中实际使用的key，如增加命名空间、压缩过长的锁名。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public interface LockKeyEncoder {
+
+    /**
+     * 编码锁名称，相同的锁名称必须编码为相同的key
+     * @param lockName 锁名称
+     * @return Redis中实际使用的key
+     */
+    String encode(String lockName);
+
+    /**
+     * 根据key反查锁名称，用于诊断，无法反查时返回null
+     * @param key Redis中实际使用的key
+     * @return 锁名称
+     */
+    default String decode(String key) {
+        return null;
+    }
+
+}
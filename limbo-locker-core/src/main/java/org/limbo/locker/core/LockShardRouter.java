@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+import org.redisson.api.RedissonClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 锁分片路由，将锁在Redis中的key路由到多个相互独立的Redis部署之一，使锁的吞吐量可以水平扩展，无需使用Redis Cluster。<br/>
+ *
+ * 路由规则按以下顺序匹配：
+ * <ol>
+ *     <li>命名空间规则，key以规则前缀开头时路由到指定分片，多个规则匹配时使用最长的前缀；</li>
+ *     <li>一致性哈希，key中包含<code>{tag}</code>形式的哈希标签时只对标签计算哈希，与Redis Cluster一致，
+ *     可用于将相关的锁放到同一分片；增减分片时只有少量key会改变分片。</li>
+ * </ol>
+ *
+ * 路由基于Redis中实际使用的key，即经过{@link LockKeyEncoder}编码后的key，命名空间规则的前缀需包含编码器添加的命名空间；
+ * 被替换为摘要的长锁名不会匹配命名空间规则。集群中所有节点需以相同的顺序配置分片及相同的规则，否则同名锁会被路由到不同分片。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class LockShardRouter {
+
+    /**
+     * 每个分片在哈希环上的默认虚拟节点数量
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    /**
+     * 分片，按配置顺序排列
+     */
+    @Getter
+    private final List<RedissonClient> shards;
+
+    /**
+     * 一致性哈希环，虚拟节点按分片序号生成，不依赖RedissonClient的实例ID，保证各节点的哈希环相同
+     */
+    private final TreeMap<Long, RedissonClient> ring = new TreeMap<>();
+
+    /**
+     * 命名空间规则，按前缀长度倒序排列，写时复制
+     */
+    private volatile List<Map.Entry<String, RedissonClient>> rules = Collections.emptyList();
+
+
+    /**
+     * @param shards 相互独立的Redis部署
+     */
+    public LockShardRouter(List<RedissonClient> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+
+    /**
+     * @param shards 相互独立的Redis部署
+     * @param virtualNodes 每个分片在哈希环上的虚拟节点数量，越大分布越均匀
+     */
+    public LockShardRouter(List<RedissonClient> shards, int virtualNodes) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("锁分片路由至少需要一个分片");
+        }
+
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        for (int i = 0; i < shards.size(); i++) {
+            for (int v = 0; v < Math.max(virtualNodes, 1); v++) {
+                ring.put(hash("shard-" + i + "#" + v), shards.get(i));
+            }
+        }
+    }
+
+
+    /**
+     * 添加命名空间规则，以指定前缀开头的key路由到指定分片
+     * @param keyPrefix key前缀
+     * @param shardIndex 分片序号，即构造时分片列表中的下标
+     * @return 当前路由，用于链式调用
+     */
+    public synchronized LockShardRouter addNamespaceRule(String keyPrefix, int shardIndex) {
+        if (shardIndex < 0 || shardIndex >= shards.size()) {
+            throw new IllegalArgumentException("shardIndex must be in [0, " + shards.size() + "), but is " + shardIndex);
+        }
+
+        List<Map.Entry<String, RedissonClient>> newRules = new ArrayList<>(rules);
+        newRules.removeIf(rule -> rule.getKey().equals(keyPrefix));
+        newRules.add(new AbstractMap.SimpleImmutableEntry<>(keyPrefix, shards.get(shardIndex)));
+        newRules.sort((r1, r2) -> Integer.compare(r2.getKey().length(), r1.getKey().length()));
+        this.rules = Collections.unmodifiableList(newRules);
+        return this;
+    }
+
+
+    /**
+     * 计算key所在的分片
+     * @param key 锁在Redis中的key
+     * @return 分片
+     */
+    public RedissonClient route(String key) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+
+        for (Map.Entry<String, RedissonClient> rule : rules) {
+            if (key.startsWith(rule.getKey())) {
+                return rule.getValue();
+            }
+        }
+
+        Map.Entry<Long, RedissonClient> node = ring.ceilingEntry(hash(hashTag(key)));
+        return node != null ? node.getValue() : ring.firstEntry().getValue();
+    }
+
+
+    /**
+     * 提取key中的哈希标签，规则与Redis Cluster一致：第一个"{"与其后第一个"}"之间的非空内容
+     */
+    private static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return key;
+        }
+
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1 ? key.substring(start + 1, end) : key;
+    }
+
+
+    private static long hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+}
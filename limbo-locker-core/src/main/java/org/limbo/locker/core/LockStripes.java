@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 锁分段工具。将锁名称散列到固定数量的分段锁上，以少量的误竞争换取Redis中锁key、pub/sub频道数量有上限。<br/>
+ * 锁名称中第一个":"及之前的部分作为命名空间，分段锁按命名空间隔离，不同业务的锁不会落到同一分段上；
+ * 只取第一段，锁名中的ID即使包含":"（如"tenant:42:order:7"），同一业务的分段锁数量仍有上限；
+ * 组件内部使用的锁（以{@link #INTERNAL_PREFIX}开头，包括已分段的锁）不分段。<br/>
+ * 需注意：需要互斥的加锁方法应使用相同的分段数量，同一锁名在不同分段数量下会映射到不同的分段锁。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public final class LockStripes {
+
+    /**
+     * 组件内部使用的锁名称前缀
+     */
+    public static final String INTERNAL_PREFIX = "limbo_locker__";
+
+    /**
+     * 分段锁名称前缀
+     */
+    public static final String STRIPE_PREFIX = INTERNAL_PREFIX + "stripe:";
+
+    /**
+     * 锁名称命名空间分隔符
+     */
+    private static final char NAMESPACE_SEPARATOR = ':';
+
+    private LockStripes() {
+    }
+
+
+    /**
+     * 计算锁名称对应的分段锁名称，格式为"前缀 + 命名空间 + 分段数量:分段序号"
+     * @param lockName 锁名称
+     * @param stripes 分段数量，小于等于0时不分段
+     * @return 分段锁名称，组件内部使用的锁返回原锁名称
+     */
+    public static String stripe(String lockName, int stripes) {
+        if (stripes <= 0 || lockName.startsWith(INTERNAL_PREFIX)) {
+            return lockName;
+        }
+
+        int h = lockName.hashCode();
+        int index = Math.floorMod(h ^ (h >>> 16), stripes);
+        return STRIPE_PREFIX + namespaceOf(lockName) + stripes + ":" + index;
+    }
+
+
+    /**
+     * 获取锁名称的命名空间，即第一个":"及之前的部分，没有":"时返回空字符串
+     */
+    static String namespaceOf(String lockName) {
+        int idx = lockName.indexOf(NAMESPACE_SEPARATOR);
+        return idx < 0 ? "" : lockName.substring(0, idx + 1);
+    }
+
+
+    /**
+     * 计算联锁名称对应的分段锁名称，落在同一分段的锁名会被合并，并按字典序排列，防止分段后加锁顺序不一致导致死锁
+     * @param lockNames 锁名称
+     * @param stripes 分段数量，小于等于0时不分段
+     * @return 分段锁名称
+     */
+    public static String[] stripe(String[] lockNames, int stripes) {
+        if (stripes <= 0) {
+            return lockNames;
+        }
+
+        Set<String> stripeNames = new LinkedHashSet<>();
+        for (String lockName : lockNames) {
+            stripeNames.add(stripe(lockName, stripes));
+        }
+
+        String[] names = stripeNames.toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+}
@@ -16,15 +16,29 @@
 
 package org.limbo.locker.core;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.limbo.locker.core.annotations.LockKind;
+import org.redisson.RedissonFairLock;
+import org.redisson.RedissonLock;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Brozen
@@ -34,8 +48,82 @@ import java.util.function.BiConsumer;
 public class LockTemplate {
 
     @Setter
+    @Getter
     protected RedissonClient redisson;
 
+    /**
+     * 锁对象缓存，为null时不缓存，每次加锁都会生成新的锁对象
+     */
+    @Setter
+    @Getter
+    protected LockCache lockCache;
+
+    /**
+     * 锁占用近端缓存，为null时不缓存。快速失败加锁时，确定被其他线程或节点持有的锁将直接在本地拒绝
+     */
+    @Setter
+    @Getter
+    protected NegativeLockCache negativeLockCache;
+
+    /**
+     * 锁分段数量，大于0时，锁名称会被散列到固定数量的分段锁上，参考{@link LockStripes}。默认0，不分段
+     */
+    @Setter
+    @Getter
+    protected int stripes;
+
+    /**
+     * 锁key编码器，为null时直接使用锁名称作为Redis key
+     */
+    @Setter
+    @Getter
+    protected LockKeyEncoder keyEncoder;
+
+    /**
+     * 锁分片路由，不为null时，锁按Redis key路由到多个独立的Redis部署之一，{@link #redisson}只用于非锁数据及通知；
+     * 为null时所有锁都使用{@link #redisson}
+     */
+    @Setter
+    @Getter
+    protected LockShardRouter shardRouter;
+
+    /**
+     * 非线程持有者在Redis中的持有者ID，使用负数防止与真实线程ID冲突
+     */
+    private static final AtomicLong OWNER_ID_GENERATOR = new AtomicLong();
+
+    /**
+     * 公平锁的等待统计
+     */
+    @Getter
+    protected final FairLockMetrics fairLockMetrics = new FairLockMetrics();
+
+    /**
+     * 优先级加锁时，每级优先级对应的老化时间，单位毫秒。低优先级的等待者每等待一个老化时间，相当于提升一级优先级。默认1000ms
+     */
+    @Setter
+    @Getter
+    protected long priorityAgingTime = 1000;
+
+    /**
+     * 自旋锁首次退避时间，单位毫秒，每次轮询失败后翻倍。默认1ms
+     */
+    @Setter
+    @Getter
+    protected long spinInitialBackoff = 1;
+
+    /**
+     * 自旋锁最大退避时间，单位毫秒。默认16ms
+     */
+    @Setter
+    @Getter
+    protected long spinMaxBackoff = 16;
+
+    /**
+     * 优先级加锁的本地闸门，key为锁在Redis中的key
+     */
+    private final Map<String, PriorityGate> priorityGates = new ConcurrentHashMap<>();
+
     /**
      * 在分布式同步锁中执行回调，并返回onSuccess的返回值，失败时打印日志
      * @param lockName      分布式锁名称
@@ -99,13 +187,7 @@ public class LockTemplate {
             } catch (Throwable t) {
                 return onFailed.apply(lock, t);
             } finally {
-                String lockName = getLockName(lock);
-                try {
-                    unlock(lock);
-                    log.info("[redisson.locker] 释放锁成功 name={}", lockName);
-                } catch (Throwable e) {
-                    log.warn("[redisson.locker] 释放锁失败 name={}", lockName, e);
-                }
+                release(lock);
             }
         } else {
             // 加锁失败 failed
@@ -173,13 +255,7 @@ public class LockTemplate {
             } catch (Throwable t) {
                 onFailed.accept(lock, t);
             } finally {
-                String lockName = getLockName(lock);
-                try {
-                    unlock(lock);
-                    log.info("[redisson.locker] 释放锁成功 name={}", lockName);
-                } catch (Throwable e) {
-                    log.warn("[redisson.locker] 释放锁失败 name={}", lockName, e);
-                }
+                release(lock);
             }
         } else {
             // 加锁失败 failed
@@ -188,10 +264,102 @@ public class LockTemplate {
     }
 
     /**
-     * 获取RLock锁
+     * 获取RLock锁，配置了锁分段时，获取分段锁；配置了锁key编码器时，使用编码后的key
      */
     public RLock getLock(String lockName) {
-        return redisson.getLock(lockName);
+        return lookupLock(encodeKey(LockStripes.stripe(lockName, stripes)));
+    }
+
+    /**
+     * 获取指定类型的锁，配置了锁分段时，获取分段锁；配置了锁key编码器时，使用编码后的key
+     * @param lockName 锁名称
+     * @param lockKind 锁类型
+     */
+    public RLock getLock(String lockName, LockKind lockKind) {
+        if (lockKind == null || lockKind == LockKind.REENTRANT) {
+            return getLock(lockName);
+        }
+        return lookupLock(encodeKey(LockStripes.stripe(lockName, stripes)), lockKind);
+    }
+
+    /**
+     * 查询公平锁的排队等待者数量
+     * @param lockName 锁名称
+     */
+    public int getFairLockQueueDepth(String lockName) {
+        String key = encodeKey(LockStripes.stripe(lockName, stripes));
+        // 与RedissonFairLock的等待队列名称保持一致
+        String queueName = key.contains("{") ? "redisson_lock_queue:" + key : "redisson_lock_queue:{" + key + "}";
+        return routeClient(key).getList(queueName, StringCodec.INSTANCE).size();
+    }
+
+    /**
+     * 获取锁key所在分片的Redisson客户端，未配置分片路由时返回{@link #redisson}
+     * @param key 锁在Redis中的key
+     */
+    protected RedissonClient routeClient(String key) {
+        return shardRouter == null ? redisson : shardRouter.route(key);
+    }
+
+    /**
+     * 将锁名称编码为Redis中实际使用的key
+     */
+    protected String encodeKey(String lockName) {
+        return keyEncoder == null ? lockName : keyEncoder.encode(lockName);
+    }
+
+    /**
+     * 获取RLock锁，不处理分段，配置了锁对象缓存时，优先从缓存中获取
+     */
+    protected RLock lookupLock(String lockName) {
+        if (lockCache == null) {
+            return routeClient(lockName).getLock(lockName);
+        }
+
+        RLock lock = lockCache.get(lockName);
+        if (lock == null) {
+            lock = routeClient(lockName).getLock(lockName);
+            lockCache.put(lockName, lock);
+        }
+        return lock;
+    }
+
+    /**
+     * 获取指定类型的RLock锁，不处理分段，配置了锁对象缓存时，优先从缓存中获取
+     */
+    protected RLock lookupLock(String lockName, LockKind lockKind) {
+        if (lockKind == null || lockKind == LockKind.REENTRANT) {
+            return lookupLock(lockName);
+        }
+
+        if (lockCache == null) {
+            return createLock(lockName, lockKind);
+        }
+
+        // 不同类型的同名锁分别缓存
+        Object cacheKey = Arrays.asList(lockKind, lockName);
+        RLock lock = lockCache.get(cacheKey);
+        if (lock == null) {
+            lock = createLock(lockName, lockKind);
+            lockCache.put(cacheKey, lock);
+        }
+        return lock;
+    }
+
+    /**
+     * 生成指定类型的RLock锁
+     */
+    protected RLock createLock(String lockName, LockKind lockKind) {
+        RedissonClient client = routeClient(lockName);
+        switch (lockKind) {
+            case FAIR:
+                return client.getFairLock(lockName);
+            case SPIN:
+                return new SpinLock(client.getLock(lockName), spinInitialBackoff, spinMaxBackoff, TimeUnit.MILLISECONDS);
+            case REENTRANT:
+            default:
+                return client.getLock(lockName);
+        }
     }
 
     /**
@@ -239,13 +407,23 @@ public class LockTemplate {
         leaseTime = leaseTime <= 0 ? -1 : leaseTime;
 
         String lockName = getLockName(lock);
+
+        // 快速失败时，确定被其他线程或节点持有的锁直接拒绝；公平锁只通知队首等待者，不能依赖解锁通知失效记录
+        boolean fair = lock instanceof RedissonFairLock;
+        boolean negativeCacheable = waitTime == 0 && negativeLockCache != null && lock instanceof RedissonLock && !fair;
+        if (negativeCacheable && negativeLockCache.isHeldElsewhere(lockName) && !isHeldLocally(lock)) {
+            log.info("[redisson.locker] 申请锁失败，锁被占用 name={}", lockName);
+            return false;
+        }
+
         log.info("[redisson.locker] 尝试申请锁 name={}", lockName);
 
         // 加锁重试3次
+        long startAt = System.nanoTime();
         int triedTimes;
         try {
             for (triedTimes = retryTimes; triedTimes > 0; triedTimes--) {
-                if (lock.tryLock(waitTime, leaseTime, timeUnit)) {
+                if (doTryLock(lock, waitTime, leaseTime, timeUnit)) {
                     log.info("[redisson.locker] 申请锁成功 name={}", lockName);
                     break;
                 }
@@ -255,8 +433,14 @@ public class LockTemplate {
             }
 
             boolean succeed = triedTimes > 0;
+            if (fair) {
+                fairLockMetrics.record(System.nanoTime() - startAt, succeed);
+            }
             if (!succeed) {
                 log.info("[redisson.locker] 申请锁失败 重试{}次 name={} ", retryTimes, lockName);
+                if (negativeCacheable && !isHeldLocally(lock)) {
+                    negativeLockCache.markHeld(lock);
+                }
             }
             return succeed;
         } catch (InterruptedException e) {
@@ -267,6 +451,102 @@ public class LockTemplate {
     }
 
 
+    /**
+     * 按优先级尝试加锁。本节点同名锁的优先级加锁调用者先在本地按优先级排队，排在最前的调用者才会向Redis申请锁，
+     * 锁释放时交给本地排队中优先级最高的调用者；低优先级调用者按{@link #priorityAgingTime}老化，不会饿死。
+     * 优先级只在本节点的优先级加锁调用者之间生效，同一把锁的调用者应都使用优先级加锁。
+     * @param lock          分布式锁
+     * @param retryTimes    加锁失败重试次数
+     * @param waitTime      加锁等待时间，包括本地排队时间
+     * @param leaseTime     加锁成功最大持有时间，超过释放
+     * @param timeUnit      waitTime和leaseTime的时间单位
+     * @param priority      优先级，越大越优先
+     * @return 是否加锁成功
+     */
+    public boolean tryLock(RLock lock, int retryTimes, long waitTime, long leaseTime, TimeUnit timeUnit, int priority) {
+        String key = lock.getName();
+        PriorityGate gate = priorityGates.compute(key, (k, g) -> {
+            g = g == null ? new PriorityGate() : g;
+            g.references.incrementAndGet();
+            return g;
+        });
+
+        long startAt = System.nanoTime();
+        boolean passed = false;
+        try {
+            passed = gate.acquire(priority, TimeUnit.MILLISECONDS.toNanos(priorityAgingTime),
+                    timeUnit.toNanos(Math.max(waitTime, 0)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("[redisson.locker] 申请锁失败，线程被中断 name={}", getLockName(lock), e);
+        }
+
+        if (!passed) {
+            log.info("[redisson.locker] 申请锁失败，本地排队超时 name={} priority={}", getLockName(lock), priority);
+            dereferenceGate(key, gate);
+            return false;
+        }
+
+        // 加锁失败或抛出异常时，释放闸门，交给下一个排队者
+        long remainTime = waitTime - timeUnit.convert(System.nanoTime() - startAt, TimeUnit.NANOSECONDS);
+        boolean locked = false;
+        try {
+            locked = tryLock(lock, retryTimes, Math.max(remainTime, 0), leaseTime, timeUnit);
+            return locked;
+        } finally {
+            if (!locked) {
+                gate.release();
+                dereferenceGate(key, gate);
+            }
+        }
+    }
+
+    /**
+     * 释放当前线程持有的优先级闸门，唤醒本地排队中优先级最高的调用者
+     */
+    protected void releasePriorityGate(RLock lock) {
+        if (priorityGates.isEmpty()) {
+            return;
+        }
+
+        String key = lock.getName();
+        PriorityGate gate = priorityGates.get(key);
+        if (gate != null && gate.isHeldByCurrentThread()) {
+            gate.release();
+            dereferenceGate(key, gate);
+        }
+    }
+
+    /**
+     * 减少闸门引用，无引用时回收闸门；回收与引用都在map的compute中执行，保证不会回收正在使用的闸门
+     */
+    private void dereferenceGate(String key, PriorityGate gate) {
+        gate.references.decrementAndGet();
+        priorityGates.computeIfPresent(key, (k, g) -> g == gate && g.references.get() <= 0 ? null : g);
+    }
+
+    /**
+     * 锁是否由当前线程或本节点持有。锁占用近端缓存命中时，需排除本节点持有的情况，防止重入被本地拒绝
+     * @param lock 分布式锁
+     */
+    protected boolean isHeldLocally(RLock lock) {
+        return lock.isHeldByCurrentThread();
+    }
+
+
+    /**
+     * 执行一次加锁
+     * @param lock          分布式锁
+     * @param waitTime      加锁等待时间
+     * @param leaseTime     加锁成功最大持有时间，超过释放
+     * @param timeUnit      waitTime和leaseTime的时间单位
+     * @return 是否加锁成功
+     */
+    protected boolean doTryLock(RLock lock, long waitTime, long leaseTime, TimeUnit timeUnit) throws InterruptedException {
+        return lock.tryLock(waitTime, leaseTime, timeUnit);
+    }
+
+
     /**
      * 解锁，因锁持有问题解锁失败时会打印warn日志记录，但不会抛出异常；因redis访问解锁失败时会打印error日志，但不会抛出异常。
      */
@@ -274,12 +554,161 @@ public class LockTemplate {
 
         try {
             lock.unlock();
+            if (negativeLockCache != null) {
+                negativeLockCache.invalidate(lock.getName());
+            }
         } catch (IllegalMonitorStateException e) {
             log.warn("[redisson.locker] 解锁抛出非法监视器异常，可能锁不被当前线程持有 name={} thread={} message={}",
                     getLockName(lock), Thread.currentThread().getId(), e.getMessage());
         } catch (RedisException e) {
             log.error("[redisson.locker] 解锁抛出异常，redis访问失败！", e);
+        } finally {
+            releasePriorityGate(lock);
+        }
+    }
+
+    /**
+     * 释放加锁成功的锁，释放失败时打印warn日志，但不会抛出异常。
+     */
+    public void release(RLock lock) {
+        String lockName = getLockName(lock);
+        try {
+            unlock(lock);
+            log.info("[redisson.locker] 释放锁成功 name={}", lockName);
+        } catch (Throwable e) {
+            log.warn("[redisson.locker] 释放锁失败 name={}", lockName, e);
+        }
+    }
+
+    /**
+     * 批量逐个加锁执行回调，锁被占用时快速失败，持有锁100s自动释放。
+     * @see #invokeEachInLock(Collection, Function, ThrowableConsumer, int, Executor, long, long, TimeUnit)
+     */
+    public <E> BulkLockResult<E> invokeEachInLock(Collection<E> items, Function<E, String> keyFunction,
+                                                  ThrowableConsumer<E> onLocked, int parallelism, Executor executor) {
+        return invokeEachInLock(items, keyFunction, onLocked, parallelism, executor,
+                0, TimeUnit.SECONDS.toMillis(100), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量逐个加锁执行回调，每个元素在各自的锁中执行。异步申请锁，同时进行中的元素不超过并行度，
+     * 锁申请成功的元素立即提交到线程池执行，执行完成后异步释放锁。锁被占用的元素不会阻塞其他元素，会记录在结果中。
+     * 调用线程会阻塞到所有元素处理完成。
+     * @param items         待处理的元素
+     * @param keyFunction   根据元素计算锁名称
+     * @param onLocked      加锁成功时对元素执行的回调
+     * @param parallelism   并行度，同时申请锁或执行回调的元素数量上限
+     * @param executor      执行回调的线程池
+     * @param waitTime      每个元素的加锁等待时间，小于等于0时快速失败
+     * @param leaseTime     加锁成功最大持有时间，超过释放
+     * @param timeUnit      waitTime和leaseTime的时间单位
+     * @return 批量执行结果
+     */
+    public <E> BulkLockResult<E> invokeEachInLock(Collection<E> items, Function<E, String> keyFunction,
+                                                  ThrowableConsumer<E> onLocked, int parallelism, Executor executor,
+                                                  long waitTime, long leaseTime, TimeUnit timeUnit) {
+        Objects.requireNonNull(keyFunction, "keyFunction");
+        Objects.requireNonNull(onLocked, "onLocked");
+        Objects.requireNonNull(executor, "executor");
+
+        int permits = Math.max(parallelism, 1);
+        Semaphore semaphore = new Semaphore(permits);
+        BulkLockResult<E> result = new BulkLockResult<>();
+        try {
+            for (E item : items) {
+                semaphore.acquire();
+                invokeInLockAsync(item, keyFunction, onLocked, executor, waitTime, leaseTime, timeUnit,
+                        result, semaphore::release);
+            }
+
+            // 等待进行中的元素全部完成
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockException("批量加锁时线程被中断", e);
+        }
+
+        log.info("[redisson.locker] 批量加锁执行完成 succeeded={} contended={} failed={}",
+                result.getSucceeded().size(), result.getContended().size(), result.getFailed().size());
+        return result;
+    }
+
+    /**
+     * 为单个元素异步申请锁，成功后提交到线程池执行，执行完成后异步释放锁。
+     * 锁不被线程持有，使用独立的持有者ID，同名元素之间同样互斥。
+     */
+    private <E> void invokeInLockAsync(E item, Function<E, String> keyFunction, ThrowableConsumer<E> onLocked,
+                                       Executor executor, long waitTime, long leaseTime, TimeUnit timeUnit,
+                                       BulkLockResult<E> result, Runnable done) {
+        RLock lock;
+        try {
+            lock = getLock(keyFunction.apply(item));
+        } catch (Throwable e) {
+            result.getFailed().put(item, e);
+            done.run();
+            return;
         }
+
+        long ownerId = nextOwnerId();
+        lock.tryLockAsync(Math.max(waitTime, 0), leaseTime <= 0 ? -1 : leaseTime, timeUnit, ownerId).onComplete((acquired, e) -> {
+            if (e != null) {
+                result.getFailed().put(item, e);
+                done.run();
+                return;
+            }
+
+            if (!acquired) {
+                log.info("[redisson.locker] 申请锁失败，锁被占用 name={}", getLockName(lock));
+                result.getContended().add(item);
+                done.run();
+                return;
+            }
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        onLocked.accept(item);
+                        result.getSucceeded().add(item);
+                    } catch (Throwable t) {
+                        result.getFailed().put(item, t);
+                    } finally {
+                        unlockAsync(lock, ownerId);
+                        done.run();
+                    }
+                });
+            } catch (RejectedExecutionException re) {
+                result.getFailed().put(item, re);
+                unlockAsync(lock, ownerId);
+                done.run();
+            }
+        });
+    }
+
+    /**
+     * 异步释放指定持有者的锁，释放失败时打印warn日志
+     */
+    protected void unlockAsync(RLock lock, long ownerId) {
+        lock.unlockAsync(ownerId).onComplete((r, e) -> {
+            if (e != null) {
+                log.warn("[redisson.locker] 释放锁失败 name={}", getLockName(lock), e);
+            } else if (negativeLockCache != null) {
+                negativeLockCache.invalidate(lock.getName());
+            }
+        });
+    }
+
+    /**
+     * 生成一个非线程持有者的ID，用于锁不由单个线程持有的场景
+     */
+    protected long nextOwnerId() {
+        return newOwnerId();
+    }
+
+    /**
+     * 生成一个非线程持有者的ID，负数，不会与线程ID冲突；同包的其他模板共用，保证同一Redisson实例下不重复
+     */
+    static long newOwnerId() {
+        return -OWNER_ID_GENERATOR.incrementAndGet();
     }
 
     /**
@@ -19,18 +19,37 @@ package org.limbo.locker.core;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.limbo.locker.core.annotations.LockKind;
 import org.redisson.RedissonLock;
 import org.redisson.RedissonMultiLock;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
 import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.pubsub.LockPubSub;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
- * 基于Redisson MultiLock的联锁加锁器
+ * 基于Redisson MultiLock的联锁加锁器。<br/>
+ *
+ * 配置了分片路由时，联锁中的每个锁从各自所在的分片获取，跨分片的联锁仍按锁名顺序逐个加锁，失败时释放已获取的锁，
+ * 互斥语义与单分片一致；需要同时锁定的资源可通过哈希标签放到同一分片，减少跨分片的网络往返。
  *
  * @author Brozen
  * @since 1.0
@@ -50,6 +69,50 @@ public class MultiLockTemplate extends LockTemplate {
         }
     }
 
+    /**
+     * 加锁脚本，与RedissonLock保持一致，加锁成功返回nil，失败返回锁的剩余有效期
+     */
+    private static final String TRY_LOCK_SCRIPT =
+            "if (redis.call('exists', KEYS[1]) == 0) then " +
+                "redis.call('hincrby', KEYS[1], ARGV[2], 1); " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return nil; " +
+            "end; " +
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+                "redis.call('hincrby', KEYS[1], ARGV[2], 1); " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return nil; " +
+            "end; " +
+            "return redis.call('pttl', KEYS[1]);";
+
+    /**
+     * 解锁脚本，与RedissonLock保持一致，完全释放时发布解锁通知，唤醒等待该锁的调用者
+     */
+    private static final String UNLOCK_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[3]) == 0) then " +
+                "return nil; " +
+            "end; " +
+            "local counter = redis.call('hincrby', KEYS[1], ARGV[3], -1); " +
+            "if (counter > 0) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                "return 0; " +
+            "else " +
+                "redis.call('del', KEYS[1]); " +
+                "redis.call('publish', KEYS[2], ARGV[1]); " +
+                "return 1; " +
+            "end; " +
+            "return nil;";
+
+    /**
+     * 续期脚本，锁仍由指定持有者持有时刷新有效期并返回1，否则返回0
+     */
+    private static final String RENEW_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
     /**
      * 在分布式同步锁中执行回调，并返回onSuccess的返回值，失败时打印日志
      * @param lockNames      分布式锁名称
@@ -93,7 +156,24 @@ public class MultiLockTemplate extends LockTemplate {
      */
     public <T> T invokeInMultiLock(String[] lockNames, ThrowableSupplier<T> onSuccess, ThrowableBiFunction<RLock, Throwable, T> onFailed,
                                    int retryTimes, Long waitTime, Long leaseTime, TimeUnit timeUnit) {
-        RLock lock = getMultiLock(lockNames);
+        return invokeInMultiLock(lockNames, LockKind.REENTRANT, onSuccess, onFailed, retryTimes, waitTime, leaseTime, timeUnit);
+    }
+
+    /**
+     * 使用指定类型的锁组成联锁，在联锁中执行回调，并返回onSuccess的返回值，加锁失败时重试指定次数，onSuccess回调抛出异常时不会重试。
+     * @param lockNames     分布式锁名称
+     * @param lockKind      联锁中每个锁的类型
+     * @param onSuccess     加锁成功时回调
+     * @param onFailed      重试后仍加锁失败，或加锁成功但回调抛出异常时，触发该回调；如果回调的第二个Throwable参数为null，说明是加锁失败；
+     * @param retryTimes    加锁失败重试次数
+     * @param waitTime      加锁等待时间
+     * @param leaseTime     加锁成功最大持有时间，超过释放
+     * @param timeUnit      waitTime和leaseTime的时间单位
+     */
+    public <T> T invokeInMultiLock(String[] lockNames, LockKind lockKind, ThrowableSupplier<T> onSuccess,
+                                   ThrowableBiFunction<RLock, Throwable, T> onFailed,
+                                   int retryTimes, Long waitTime, Long leaseTime, TimeUnit timeUnit) {
+        RLock lock = getMultiLock(lockNames, lockKind);
         return invokeInLock(lock, onSuccess, onFailed, retryTimes, waitTime, leaseTime, timeUnit);
     }
 
@@ -145,18 +225,283 @@ public class MultiLockTemplate extends LockTemplate {
     }
 
     /**
-     * 获取联锁
+     * 获取联锁，配置了锁对象缓存时，优先从缓存中获取；配置了锁分段时，获取分段锁组成的联锁，同一分段的锁会被合并
      */
     public RLock getMultiLock(String[] lockNames) {
+        return getMultiLock(lockNames, LockKind.REENTRANT);
+    }
+
+    /**
+     * 获取指定类型的锁组成的联锁，配置了锁对象缓存时，优先从缓存中获取；配置了锁分段时，获取分段锁组成的联锁，同一分段的锁会被合并
+     * @param lockNames 锁名称
+     * @param lockKind 联锁中每个锁的类型
+     */
+    public RLock getMultiLock(String[] lockNames, LockKind lockKind) {
+        lockKind = lockKind == null ? LockKind.REENTRANT : lockKind;
+        lockNames = LockStripes.stripe(lockNames, stripes);
+        if (lockCache == null) {
+            return createMultiLock(lockNames, lockKind);
+        }
+
+        // 不同类型的同名联锁分别缓存
+        boolean reentrant = lockKind == LockKind.REENTRANT;
+        RLock lock = lockCache.get(reentrant ? Arrays.asList(lockNames) : Arrays.asList(lockKind, Arrays.asList(lockNames)));
+        if (lock == null) {
+            lock = createMultiLock(lockNames, lockKind);
+            // 复制一份锁名作为key，防止调用方修改数组后影响缓存
+            List<String> names = Collections.unmodifiableList(Arrays.asList(lockNames.clone()));
+            lockCache.put(reentrant ? names : Arrays.asList(lockKind, names), lock);
+        }
+        return lock;
+    }
+
+    /**
+     * 生成联锁
+     */
+    private RLock createMultiLock(String[] lockNames, LockKind lockKind) {
         RLock[] locks = new RLock[lockNames.length];
         for (int i = 0; i < lockNames.length; i++) {
-            String lockName = lockNames[i];
-            locks[i] = redisson.getLock(lockName);
+            locks[i] = lookupLock(encodeKey(lockNames[i]), lockKind);
         }
 
         return redisson.getMultiLock(locks);
     }
 
+    /**
+     * 批量尝试加多个独立的锁，持有锁100s自动释放。
+     * @see #tryLockEach(Collection, long, TimeUnit)
+     */
+    public LockEachResult tryLockEach(Collection<String> lockNames) {
+        return tryLockEach(lockNames, TimeUnit.SECONDS.toMillis(100), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量尝试加多个独立的锁，不等待，也不重试。与联锁不同，每个锁独立成败，结果中记录每个锁是否加锁成功。
+     * 所有加锁脚本通过一个RBatch流水线发送，只需一次网络往返；配置了分片路由时，每个分片一个流水线并行发送。
+     * 锁由当前线程持有，与RedissonLock兼容；配置了分片路由时，持有者标识使用{@link #redisson}的ID，
+     * 只与主客户端上的RedissonLock兼容。加锁成功的锁需通过{@link #unlockEach(LockEachResult)}批量释放。
+     * @param lockNames 锁名称，重复的锁名只加锁一次
+     * @param leaseTime 加锁成功最大持有时间，超过释放，需大于0
+     * @param timeUnit  leaseTime的时间单位
+     * @return 每个锁名称的加锁结果
+     */
+    public LockEachResult tryLockEach(Collection<String> lockNames, long leaseTime, TimeUnit timeUnit) {
+        return tryLockEach(lockNames, leaseTime, timeUnit, redisson.getId() + ":" + Thread.currentThread().getId());
+    }
+
+    /**
+     * 以指定持有者批量尝试加多个独立的锁，用于锁不由单个线程持有的场景
+     * @param ownerId 锁在Redis中的持有者标识
+     * @see #tryLockEach(Collection, long, TimeUnit)
+     */
+    LockEachResult tryLockEach(Collection<String> lockNames, long leaseTime, TimeUnit timeUnit, String ownerId) {
+        if (leaseTime <= 0) {
+            throw new IllegalArgumentException("leaseTime must be positive");
+        }
+
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(lockNames));
+        List<String> keys = new ArrayList<>(names.size());
+        for (String name : names) {
+            keys.add(encodeKey(LockStripes.stripe(name, stripes)));
+        }
+
+        List<?> responses = evalEach(keys, (script, key) -> script.evalAsync(RScript.Mode.READ_WRITE, TRY_LOCK_SCRIPT,
+                RScript.ReturnType.INTEGER, Collections.singletonList(key), timeUnit.toMillis(leaseTime), ownerId));
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        Map<String, String> acquiredKeys = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            boolean acquired = responses.get(i) == null;
+            results.put(names.get(i), acquired);
+            if (acquired) {
+                acquiredKeys.put(names.get(i), keys.get(i));
+            }
+        }
+
+        log.info("[redisson.locker] 批量申请锁完成 acquired={} failed={}", acquiredKeys.size(), names.size() - acquiredKeys.size());
+        return new LockEachResult(results, acquiredKeys, ownerId, timeUnit.toMillis(leaseTime));
+    }
+
+    /**
+     * 批量续期{@link #tryLockEach}加锁成功的锁，按加锁时的持有时间刷新有效期，所有续期脚本通过一个RBatch流水线发送。
+     * @param result 批量加锁结果
+     * @return 续期后仍持有的锁，已过期或被其他持有者获取的锁在结果中记为失败
+     */
+    public LockEachResult renewEach(LockEachResult result) {
+        if (result.acquiredKeys.isEmpty()) {
+            return result;
+        }
+
+        List<?> responses = evalEach(new ArrayList<>(result.acquiredKeys.values()),
+                (script, key) -> script.evalAsync(RScript.Mode.READ_WRITE, RENEW_SCRIPT, RScript.ReturnType.INTEGER,
+                        Collections.singletonList(key), result.leaseTime, result.ownerId));
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        Map<String, String> acquiredKeys = new LinkedHashMap<>();
+        int i = 0;
+        for (Map.Entry<String, String> entry : result.acquiredKeys.entrySet()) {
+            Object response = responses.get(i++);
+            boolean renewed = response instanceof Long && (Long) response == 1;
+            results.put(entry.getKey(), renewed);
+            if (renewed) {
+                acquiredKeys.put(entry.getKey(), entry.getValue());
+            } else {
+                log.warn("[redisson.locker] 续期锁失败，锁已不被持有 name={} owner={}", entry.getKey(), result.ownerId);
+            }
+        }
+
+        return new LockEachResult(results, acquiredKeys, result.ownerId, result.leaseTime);
+    }
+
+    /**
+     * 批量释放{@link #tryLockEach}加锁成功的锁，所有解锁脚本通过一个RBatch流水线发送。
+     * 释放失败时打印warn日志，但不会抛出异常。
+     * @param result 批量加锁结果
+     */
+    public void unlockEach(LockEachResult result) {
+        if (result.acquiredKeys.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<?> responses = evalEach(new ArrayList<>(result.acquiredKeys.values()),
+                    (script, key) -> script.evalAsync(RScript.Mode.READ_WRITE, UNLOCK_SCRIPT, RScript.ReturnType.INTEGER,
+                            Arrays.asList(key, NegativeLockCache.getChannelName(key)),
+                            LockPubSub.UNLOCK_MESSAGE, result.leaseTime, result.ownerId));
+            int i = 0;
+            for (String name : result.acquiredKeys.keySet()) {
+                if (responses.get(i++) == null) {
+                    log.warn("[redisson.locker] 释放锁失败，锁不被当前持有者持有 name={} owner={}", name, result.ownerId);
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("[redisson.locker] 批量释放锁失败 names={}", result.acquiredKeys.keySet(), e);
+        }
+    }
+
+    /**
+     * 对每个key执行一次脚本，并按keys的顺序返回脚本执行结果。未配置分片路由时，所有脚本通过一个RBatch流水线发送；
+     * 配置了分片路由时，按key所在分片分组，每个分片一个RBatch流水线并行发送，耗时取决于最慢的分片。
+     * @param keys 锁在Redis中的key
+     * @param command 向RBatch的RScript中添加key对应的脚本
+     * @return 每个key的脚本执行结果
+     */
+    private List<?> evalEach(List<String> keys, BiConsumer<RScript, String> command) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (shardRouter == null) {
+            RBatch batch = redisson.createBatch();
+            RScript script = batch.getScript(LongCodec.INSTANCE);
+            keys.forEach(key -> command.accept(script, key));
+            return batch.execute().getResponses();
+        }
+
+        // 按分片分组，记录每个key在结果中的位置
+        Map<RedissonClient, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            groups.computeIfAbsent(routeClient(keys.get(i)), c -> new ArrayList<>()).add(i);
+        }
+
+        Map<RedissonClient, RFuture<BatchResult<?>>> futures = new LinkedHashMap<>();
+        groups.forEach((client, indexes) -> {
+            RBatch batch = client.createBatch();
+            RScript script = batch.getScript(LongCodec.INSTANCE);
+            indexes.forEach(i -> command.accept(script, keys.get(i)));
+            futures.put(client, batch.executeAsync());
+        });
+
+        // 等待所有分片返回后再检查失败，防止某个分片失败时其他分片的脚本仍在途
+        futures.values().forEach(RFuture::awaitUninterruptibly);
+        Object[] responses = new Object[keys.size()];
+        groups.forEach((client, indexes) -> {
+            List<?> shardResponses = futures.get(client).syncUninterruptibly().getNow().getResponses();
+            for (int i = 0; i < indexes.size(); i++) {
+                responses[indexes.get(i)] = shardResponses.get(i);
+            }
+        });
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * 从候选锁中获取任意一个空闲锁，不等待，重试3次，持有锁100s自动释放。
+     * @see #tryLockAny(Collection, int, int, long, long, TimeUnit)
+     */
+    public LockEachResult tryLockAny(Collection<String> lockNames) {
+        return tryLockAny(lockNames, 1, 3, 0, TimeUnit.SECONDS.toMillis(100), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从候选锁中获取任意指定数量的空闲锁。候选锁按随机顺序分批尝试，每批通过{@link #tryLockEach}流水线加锁，
+     * 批大小为仍需获取的锁数量，使并发的调用者分散到不同的空闲锁上。一轮尝试未获取到足够数量的锁时，
+     * 释放已获取的锁并重试，重试间隔不超过剩余的等待时间。
+     * @param lockNames     候选锁名称，重复的锁名只尝试一次
+     * @param count         需要获取的锁数量，不可超过去重后的候选锁数量
+     * @param retryTimes    获取失败时的重试次数
+     * @param waitTime      加锁等待时间
+     * @param leaseTime     加锁成功最大持有时间，超过释放，需大于0
+     * @param timeUnit      waitTime和leaseTime的时间单位
+     * @return 加锁结果，其中加锁成功的锁数量为count；获取失败时返回null
+     */
+    public LockEachResult tryLockAny(Collection<String> lockNames, int count, int retryTimes,
+                                     long waitTime, long leaseTime, TimeUnit timeUnit) {
+        List<String> candidates = new ArrayList<>(new LinkedHashSet<>(lockNames));
+        if (count <= 0 || count > candidates.size()) {
+            throw new IllegalArgumentException("count must be in [1, " + candidates.size() + "], but is " + count);
+        }
+
+        long deadline = System.nanoTime() + timeUnit.toNanos(Math.max(waitTime, 0));
+        try {
+            for (int triedTimes = Math.max(retryTimes, 1); triedTimes > 0; triedTimes--) {
+                LockEachResult result = tryLockAnyOnce(candidates, count, leaseTime, timeUnit);
+                if (result != null) {
+                    return result;
+                }
+
+                // 失败重试前等待其他持有者释放，等待时间耗尽时让出一下CPU
+                long remainNanos = deadline - System.nanoTime();
+                if (remainNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(remainNanos, TimeUnit.MILLISECONDS.toNanos(50)));
+                } else {
+                    Thread.yield();
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("[redisson.locker] 申请锁失败，线程被中断 names={}", candidates, e);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        log.info("[redisson.locker] 申请锁失败，空闲锁不足 count={} 重试{}次 names={}", count, retryTimes, candidates);
+        return null;
+    }
+
+    /**
+     * 以随机顺序尝试一轮候选锁，获取到足够数量的锁时返回，否则释放已获取的锁并返回null
+     */
+    private LockEachResult tryLockAnyOnce(List<String> candidates, int count, long leaseTime, TimeUnit timeUnit) {
+        List<String> shuffled = new ArrayList<>(candidates);
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        Map<String, String> acquiredKeys = new LinkedHashMap<>();
+        String ownerId = null;
+        for (int offset = 0; acquiredKeys.size() < count && offset < shuffled.size(); ) {
+            int batchSize = Math.min(count - acquiredKeys.size(), shuffled.size() - offset);
+            LockEachResult batch = tryLockEach(shuffled.subList(offset, offset + batchSize), leaseTime, timeUnit);
+            results.putAll(batch.getResults());
+            acquiredKeys.putAll(batch.acquiredKeys);
+            ownerId = batch.ownerId;
+            offset += batchSize;
+        }
+
+        LockEachResult result = new LockEachResult(results, acquiredKeys, ownerId, timeUnit.toMillis(leaseTime));
+        if (acquiredKeys.size() < count) {
+            unlockEach(result);
+            return null;
+        }
+        return result;
+    }
+
     /**
      * 联锁不支持部分方法，因此重写方法，直接释放
      */
@@ -170,7 +515,7 @@ public class MultiLockTemplate extends LockTemplate {
      */
     @Override
     protected String getLockName(RLock lock) {
-        if (lock instanceof RedissonLock) {
+        if (lock instanceof RedissonLock || lock instanceof SpinLock) {
 
             return super.getLockName(lock);
 
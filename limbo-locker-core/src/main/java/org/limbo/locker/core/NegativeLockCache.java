@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import lombok.Setter;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁占用近端缓存。快速失败（不等待）加锁失败时，记录锁被其他线程或节点持有，以及预计持有到何时；
+ * 有效期内再次快速失败加锁可直接在本地拒绝，无需访问Redis。<br/>
+ *
+ * 记录在以下情况失效：锁的解锁pub/sub频道收到消息、本节点释放了该锁、Redis中锁的剩余有效期结束、超过最大缓存时长。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class NegativeLockCache {
+
+    /**
+     * Redisson锁的解锁通知频道前缀，与RedissonLock保持一致
+     */
+    private static final String LOCK_CHANNEL_PREFIX = "redisson_lock__channel";
+
+    private final RedissonClient redisson;
+
+    /**
+     * 锁分片路由，不为null时，从锁所在的分片订阅解锁通知
+     */
+    @Setter
+    private LockShardRouter shardRouter;
+
+    /**
+     * 锁被占用的记录，key为锁名称
+     */
+    private final Cache<String, HeldEntry> cache;
+
+    /**
+     * 正在订阅或读取有效期、尚未写入记录的锁名称，防止并发的加锁失败重复访问Redis
+     */
+    private final Set<String> marking = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 记录的最大缓存时长，单位纳秒
+     */
+    private final long maxTtlNanos;
+
+
+    /**
+     * @param redisson Redisson客户端，用于订阅解锁通知
+     * @param maximumSize 最多记录多少个被占用的锁
+     * @param maxTtl 记录的最大缓存时长，单位毫秒
+     */
+    public NegativeLockCache(RedissonClient redisson, long maximumSize, long maxTtl) {
+        this.redisson = redisson;
+        this.maxTtlNanos = TimeUnit.MILLISECONDS.toNanos(maxTtl);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxTtl, TimeUnit.MILLISECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+
+    /**
+     * 锁是否确定被其他线程或节点持有
+     * @param lockName 锁名称
+     */
+    public boolean isHeldElsewhere(String lockName) {
+        HeldEntry entry = cache.getIfPresent(lockName);
+        return entry != null && entry.heldUntil - System.nanoTime() > 0;
+    }
+
+
+    /**
+     * 记录锁被其他线程或节点持有。先订阅锁的解锁通知，订阅成功后再读取锁的剩余有效期，锁仍存在时才写入记录，
+     * 防止订阅生效前锁已释放，记录无法被通知失效。订阅或读取失败时不记录。<br/>
+     * 已有有效记录，或同名锁正在记录中时直接返回，锁竞争激烈时多个加锁失败的调用者只访问一次Redis。
+     * @param lock 加锁失败的锁
+     */
+    public void markHeld(RLock lock) {
+        String lockName = lock.getName();
+        if (isHeldElsewhere(lockName) || !marking.add(lockName)) {
+            return;
+        }
+
+        HeldEntry entry = new HeldEntry(System.nanoTime() + maxTtlNanos);
+
+        // 订阅解锁通知，收到通知时失效记录
+        RedissonClient client = shardRouter == null ? redisson : shardRouter.route(lockName);
+        entry.topic = client.getTopic(getChannelName(lockName), LongCodec.INSTANCE);
+        entry.listenerId = entry.topic.addListenerAsync(Long.class, (channel, msg) -> {
+            entry.released = true;
+            invalidate(lockName, entry);
+        });
+
+        entry.listenerId.onComplete((listenerId, se) -> {
+            if (se != null) {
+                marking.remove(lockName);
+                return;
+            }
+
+            // 按锁的剩余有效期缩短记录
+            lock.remainTimeToLiveAsync().onComplete((pttl, e) -> {
+                marking.remove(lockName);
+
+                // 读取失败，或锁已经不存在
+                if (e != null || pttl == null || pttl == -2 || entry.released) {
+                    unsubscribe(entry);
+                    return;
+                }
+
+                if (pttl > 0) {
+                    entry.heldUntil = Math.min(entry.heldUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pttl));
+                }
+                cache.put(lockName, entry);
+
+                // 写入记录前已收到解锁通知
+                if (entry.released) {
+                    invalidate(lockName, entry);
+                }
+            });
+        });
+    }
+
+
+    /**
+     * 失效锁的占用记录
+     * @param lockName 锁名称
+     */
+    public void invalidate(String lockName) {
+        cache.invalidate(lockName);
+    }
+
+
+    /**
+     * 失效指定的占用记录，防止误删新的记录
+     */
+    private void invalidate(String lockName, HeldEntry entry) {
+        cache.asMap().remove(lockName, entry);
+    }
+
+
+    /**
+     * 记录移除时，取消订阅解锁通知
+     */
+    private void onRemoval(RemovalNotification<String, HeldEntry> notification) {
+        unsubscribe(notification.getValue());
+    }
+
+
+    /**
+     * 取消订阅记录的解锁通知
+     */
+    private void unsubscribe(HeldEntry entry) {
+        if (entry == null || entry.topic == null || entry.listenerId == null) {
+            return;
+        }
+
+        RTopic topic = entry.topic;
+        entry.listenerId.onComplete((listenerId, e) -> {
+            if (listenerId != null) {
+                topic.removeListenerAsync(listenerId);
+            }
+        });
+    }
+
+
+    /**
+     * 生成锁的解锁通知频道名称，与RedissonLock保持一致
+     */
+    static String getChannelName(String lockName) {
+        if (lockName.contains("{")) {
+            return LOCK_CHANNEL_PREFIX + ":" + lockName;
+        }
+        return LOCK_CHANNEL_PREFIX + ":{" + lockName + "}";
+    }
+
+
+    /**
+     * 锁被占用的记录
+     */
+    private static class HeldEntry {
+
+        /**
+         * 预计持有到何时，System.nanoTime()
+         */
+        volatile long heldUntil;
+
+        /**
+         * 解锁通知频道
+         */
+        volatile RTopic topic;
+
+        /**
+         * 解锁通知监听器ID
+         */
+        volatile RFuture<Integer> listenerId;
+
+        /**
+         * 是否已收到解锁通知
+         */
+        volatile boolean released;
+
+        HeldEntry(long heldUntil) {
+            this.heldUntil = heldUntil;
+        }
+    }
+
+}
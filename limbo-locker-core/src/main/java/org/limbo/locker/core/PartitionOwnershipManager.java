@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分区归属管理器，将N个工作分区通过分区锁均衡分配到存活节点上。<br/>
+ * 每个节点定期在成员表中登记心跳，按存活节点排序后的序号认领序号对应的分区（分区号对节点数取模），
+ * 释放不再属于自己的分区。持有的分区通过一次流水线批量续期，认领也通过一次流水线批量加锁，只获取空闲的分区，不抢占。
+ * 节点加入或离开时通过发布订阅通知其他节点立即重新均衡。<br/>
+ * 判断分区归属只读取本地状态，时间复杂度O(1)，不访问Redis：除了持有状态，还要求距上次均衡成功（按发出请求的时间计算）
+ * 未超过扣除时钟漂移后的有效期，均衡阻塞或失败时，本节点在分区锁过期前即不再认为自己持有分区；续期被拒绝的分区立即放弃。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class PartitionOwnershipManager {
+
+    /**
+     * 分区锁名前缀
+     */
+    public static final String PARTITION_LOCK_PREFIX = "limbo_locker__partition:";
+
+    /**
+     * 成员表名前缀
+     */
+    public static final String MEMBERS_PREFIX = "limbo_locker__partition_members:";
+
+    /**
+     * 重新均衡通知频道名前缀
+     */
+    public static final String REBALANCE_TOPIC_PREFIX = "limbo_locker__partition_rebalance:";
+
+    private final MultiLockTemplate lockTemplate;
+
+    /**
+     * 分区分组名称
+     */
+    @Getter
+    private final String group;
+
+    /**
+     * 分区数量
+     */
+    @Getter
+    private final int partitions;
+
+    /**
+     * 分区锁及成员心跳的有效期，单位毫秒，每1/3有效期均衡一次
+     */
+    private final long leaseTime;
+
+    /**
+     * 时钟漂移系数，分区锁有效期会扣除 有效期 * clockDriftFactor + 2ms 的时钟漂移。默认0.01
+     */
+    @Setter
+    @Getter
+    private double clockDriftFactor = 0.01;
+
+    /**
+     * 本节点ID，同时作为分区锁在Redis中的持有者标识
+     */
+    @Getter
+    private final String nodeId;
+
+    /**
+     * 节点成员表，value为登记时间
+     */
+    private final RMapCache<String, String> members;
+
+    /**
+     * 重新均衡通知频道
+     */
+    private final RTopic rebalanceTopic;
+
+    /**
+     * 持有的分区锁
+     */
+    private LockEachResult held;
+
+    /**
+     * 本节点持有的分区，下标为分区号，整体替换，不修改
+     */
+    private volatile boolean[] owned;
+
+    /**
+     * 上次均衡成功的请求发出时间，System.nanoTime()
+     */
+    private volatile long rebalancedAt = System.nanoTime();
+
+    /**
+     * 均衡调度器
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "limbo-partition-manager");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * @param lockTemplate 加锁模板
+     * @param group 分区分组名称，同一分组的节点共同分配分区
+     * @param partitions 分区数量
+     * @param leaseTime 分区锁及成员心跳的有效期，单位毫秒
+     */
+    public PartitionOwnershipManager(MultiLockTemplate lockTemplate, String group, int partitions, long leaseTime) {
+        if (partitions <= 0 || leaseTime <= 0) {
+            throw new IllegalArgumentException("partitions and leaseTime must be positive");
+        }
+
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.group = Objects.requireNonNull(group, "group");
+        this.partitions = partitions;
+        this.leaseTime = leaseTime;
+        this.nodeId = lockTemplate.getRedisson().getId() + ":" + lockTemplate.nextOwnerId();
+        this.members = lockTemplate.getRedisson().getMapCache(lockTemplate.encodeKey(MEMBERS_PREFIX + group), StringCodec.INSTANCE);
+        this.rebalanceTopic = lockTemplate.getRedisson().getTopic(lockTemplate.encodeKey(REBALANCE_TOPIC_PREFIX + group), StringCodec.INSTANCE);
+        this.owned = new boolean[partitions];
+    }
+
+
+    /**
+     * 加入分组，立即均衡一次，并开始定期均衡
+     */
+    public void start() {
+        rebalanceTopic.addListener(String.class, (channel, node) -> {
+            if (!nodeId.equals(node)) {
+                scheduler.execute(this::rebalance);
+            }
+        });
+
+        scheduler.execute(this::rebalance);
+        long period = Math.max(leaseTime / 3, 1);
+        scheduler.scheduleWithFixedDelay(this::rebalance, period, period, TimeUnit.MILLISECONDS);
+
+        rebalanceTopic.publishAsync(nodeId);
+    }
+
+
+    /**
+     * 离开分组，释放持有的分区，并通知其他节点重新均衡
+     */
+    public void shutdown() {
+        rebalanceTopic.removeAllListeners();
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(leaseTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            owned = new boolean[partitions];
+            members.fastRemove(nodeId);
+            if (held != null) {
+                lockTemplate.unlockEach(held);
+                held = null;
+            }
+        }
+        rebalanceTopic.publishAsync(nodeId);
+    }
+
+
+    /**
+     * 本节点是否持有分区
+     * @param partition 分区号
+     */
+    public boolean isOwner(int partition) {
+        boolean[] owned = this.owned;
+        return partition >= 0 && partition < owned.length && owned[partition] && isLeaseValid();
+    }
+
+
+    /**
+     * 分区锁是否仍在有效期内，有效期从上次均衡发出请求时开始计算，并扣除时钟漂移
+     */
+    private boolean isLeaseValid() {
+        long drift = (long) (leaseTime * clockDriftFactor) + 2;
+        return System.nanoTime() - rebalancedAt < TimeUnit.MILLISECONDS.toNanos(leaseTime - drift);
+    }
+
+
+    /**
+     * 本节点持有的所有分区号
+     */
+    public Set<Integer> getOwnedPartitions() {
+        boolean[] owned = this.owned;
+        Set<Integer> partitions = new TreeSet<>();
+        if (!isLeaseValid()) {
+            return partitions;
+        }
+
+        for (int i = 0; i < owned.length; i++) {
+            if (owned[i]) {
+                partitions.add(i);
+            }
+        }
+        return partitions;
+    }
+
+
+    /**
+     * 均衡一次：登记心跳，续期持有的分区，释放不再属于自己的分区，认领属于自己的空闲分区
+     */
+    private synchronized void rebalance() {
+        long startAt = System.nanoTime();
+        try {
+            members.fastPut(nodeId, String.valueOf(System.currentTimeMillis()), leaseTime, TimeUnit.MILLISECONDS);
+            List<String> nodes = new ArrayList<>(new TreeSet<>(members.readAllKeySet()));
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+                Collections.sort(nodes);
+            }
+            int nodeCount = nodes.size();
+            int index = nodes.indexOf(nodeId);
+
+            Map<String, Integer> names = new HashMap<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                names.put(PARTITION_LOCK_PREFIX + group + ":" + partition, partition);
+            }
+
+            // 续期持有的分区，续期被拒绝的分区已被其他节点认领或过期，立即放弃
+            if (held != null) {
+                held = lockTemplate.renewEach(held);
+                if (held.acquiredKeys.size() < held.getResults().size()) {
+                    this.owned = ownedOf(names);
+                }
+            }
+
+            // 释放不再属于本节点的分区，由新的归属节点认领
+            List<String> released = new ArrayList<>();
+            List<String> claiming = new ArrayList<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                String name = PARTITION_LOCK_PREFIX + group + ":" + partition;
+                boolean holding = held != null && held.acquiredKeys.containsKey(name);
+                boolean assigned = partition % nodeCount == index;
+                if (holding && !assigned) {
+                    released.add(name);
+                } else if (!holding && assigned) {
+                    claiming.add(name);
+                }
+            }
+
+            if (!released.isEmpty()) {
+                lockTemplate.unlockEach(held.subset(released));
+                List<String> remains = new ArrayList<>(held.acquiredKeys.keySet());
+                remains.removeAll(released);
+                held = held.subset(remains);
+            }
+
+            // 认领属于本节点的空闲分区，仍被其他节点持有的分区等待其释放或过期
+            if (!claiming.isEmpty()) {
+                LockEachResult claimed = lockTemplate.tryLockEach(claiming, leaseTime, TimeUnit.MILLISECONDS, nodeId);
+                held = held == null ? claimed : held.merge(claimed);
+            }
+
+            this.owned = ownedOf(names);
+            this.rebalancedAt = startAt;
+
+            if (!released.isEmpty() || !claiming.isEmpty()) {
+                log.info("[redisson.locker] 分区均衡完成 group={} nodes={} owned={} released={}",
+                        group, nodeCount, getOwnedPartitions(), released.size());
+            }
+        } catch (Throwable e) {
+            log.warn("[redisson.locker] 分区均衡失败 group={}", group, e);
+
+            // 超过有效期无法续期，分区锁可能已过期被其他节点认领，放弃所有分区
+            if (System.nanoTime() - rebalancedAt >= TimeUnit.MILLISECONDS.toNanos(leaseTime)) {
+                this.owned = new boolean[partitions];
+                this.held = null;
+            }
+        }
+    }
+
+
+    /**
+     * 按持有的分区锁生成分区持有状态
+     * @param names 分区锁名称与分区号的映射
+     */
+    private boolean[] ownedOf(Map<String, Integer> names) {
+        boolean[] owned = new boolean[partitions];
+        if (held != null) {
+            held.acquiredKeys.keySet().forEach(name -> owned[names.get(name)] = true);
+        }
+        return owned;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地优先级闸门，同名锁在本节点的等待者按优先级排队，只有通过闸门的线程才会向Redis申请锁，并持有闸门直到释放锁。<br/>
+ * 排队顺序按 入队时间 - 优先级 * 老化时间 计算，优先级每高1级，相当于提前一个老化时间入队；
+ * 低优先级的等待者等待超过优先级差距对应的老化时间后，会排在新来的高优先级等待者之前，不会饿死。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+final class PriorityGate {
+
+    /**
+     * 优先级提前入队时间的上限，单位纳秒。排队顺序按差值比较，限制提前量保证任意两个排队顺序之差不会溢出
+     */
+    static final long MAX_PRIORITY_OFFSET = Long.MAX_VALUE / 4;
+
+    private final ReentrantLock mutex = new ReentrantLock();
+
+    /**
+     * 排队中的等待者，队首为下一个通过闸门的等待者
+     */
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    /**
+     * 引用闸门的调用数量，包括排队中和持有中的调用，为0时闸门可被回收
+     */
+    final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * 持有闸门的线程
+     */
+    private Thread owner;
+
+    /**
+     * 持有线程的重入次数
+     */
+    private int holds;
+
+
+    /**
+     * 按优先级排队通过闸门
+     * @param priority 优先级，越大越优先
+     * @param agingNanos 每级优先级对应的老化时间，单位纳秒
+     * @param timeoutNanos 最长等待时间，单位纳秒
+     * @return 是否通过闸门
+     */
+    boolean acquire(int priority, long agingNanos, long timeoutNanos) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        mutex.lock();
+        try {
+            if (owner == current) {
+                holds++;
+                return true;
+            }
+
+            Waiter waiter = new Waiter(System.nanoTime() - priorityOffset(priority, agingNanos), mutex.newCondition());
+            waiters.add(waiter);
+            try {
+                long remainNanos = timeoutNanos;
+                while (owner != null || waiters.peek() != waiter) {
+                    if (remainNanos <= 0) {
+                        return false;
+                    }
+                    remainNanos = waiter.turn.awaitNanos(remainNanos);
+                }
+
+                owner = current;
+                holds = 1;
+                return true;
+            } finally {
+                // 通过闸门、超时或被中断，都需要离开队列；未通过时，唤醒新的队首
+                waiters.remove(waiter);
+                if (owner != current) {
+                    signalHead();
+                }
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+
+    /**
+     * 计算优先级对应的提前入队时间，优先级过大或过小时截断，防止 优先级 * 老化时间 溢出
+     * @param priority 优先级
+     * @param agingNanos 每级优先级对应的老化时间，单位纳秒
+     * @return 提前入队时间，单位纳秒，绝对值不超过{@link #MAX_PRIORITY_OFFSET}
+     */
+    static long priorityOffset(int priority, long agingNanos) {
+        if (agingNanos <= 0) {
+            return 0;
+        }
+
+        long limit = MAX_PRIORITY_OFFSET / agingNanos;
+        return Math.max(-limit, Math.min(limit, priority)) * agingNanos;
+    }
+
+
+    /**
+     * 当前线程是否持有闸门
+     */
+    boolean isHeldByCurrentThread() {
+        mutex.lock();
+        try {
+            return owner == Thread.currentThread();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+
+    /**
+     * 释放闸门，完全释放时唤醒队首的等待者
+     * @return 是否完全释放
+     */
+    boolean release() {
+        mutex.lock();
+        try {
+            if (owner != Thread.currentThread()) {
+                return false;
+            }
+
+            if (--holds > 0) {
+                return false;
+            }
+
+            owner = null;
+            signalHead();
+            return true;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+
+    /**
+     * 闸门空闲时唤醒队首的等待者，只唤醒一个
+     */
+    private void signalHead() {
+        Waiter head = waiters.peek();
+        if (owner == null && head != null) {
+            head.turn.signal();
+        }
+    }
+
+
+    /**
+     * 排队中的等待者
+     */
+    private static class Waiter implements Comparable<Waiter> {
+
+        /**
+         * 排队顺序，越小越靠前
+         */
+        final long rank;
+
+        /**
+         * 轮到该等待者时的通知
+         */
+        final Condition turn;
+
+        Waiter(long rank, Condition turn) {
+            this.rank = rank;
+            this.turn = turn;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            return Long.compare(rank - o.rank, 0);
+        }
+    }
+
+}
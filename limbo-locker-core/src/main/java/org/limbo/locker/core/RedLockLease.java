@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.redisson.api.RLock;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redlock加锁成功的租约，参考{@link RedLockTemplate#tryLock}。释放时需交给{@link RedLockTemplate#unlock}。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@ToString(exclude = "locks")
+public class RedLockLease {
+
+    /**
+     * 锁名称
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * 加锁成功的Redis节点数量
+     */
+    @Getter
+    private final int acquiredNodes;
+
+    /**
+     * 每个Redis节点上的锁，释放时在所有节点上解锁
+     */
+    final List<RLock> locks;
+
+    /**
+     * 锁在Redis中的持有者标识
+     */
+    final long ownerId;
+
+    /**
+     * 租约有效期截止时间，System.nanoTime()时间
+     */
+    private final long validUntil;
+
+
+    RedLockLease(String name, int acquiredNodes, List<RLock> locks, long ownerId, long validUntil) {
+        this.name = name;
+        this.acquiredNodes = acquiredNodes;
+        this.locks = locks;
+        this.ownerId = ownerId;
+        this.validUntil = validUntil;
+    }
+
+
+    /**
+     * 租约剩余有效时间，已扣除加锁耗时及时钟漂移。超过有效时间后，锁可能已在多数节点上过期，不再保证互斥
+     * @param timeUnit 时间单位
+     * @return 剩余有效时间，已失效时返回0
+     */
+    public long getValidity(TimeUnit timeUnit) {
+        return timeUnit.convert(Math.max(validUntil - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    }
+
+
+    /**
+     * 租约是否仍在有效期内
+     */
+    public boolean isValid() {
+        return validUntil - System.nanoTime() > 0;
+    }
+
+}
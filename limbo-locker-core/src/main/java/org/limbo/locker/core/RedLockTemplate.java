@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redlock加锁模板，在多个相互独立的Redis主节点上同时加锁，多数节点加锁成功即视为成功。<br/>
+ *
+ * 每次尝试向所有节点并行发送加锁请求，成功数达到多数时立即返回，耗时取决于多数节点中最慢的节点，而非所有节点耗时之和；
+ * 失败数达到无法形成多数时也立即返回。加锁成功后，租约有效期为持有时间扣除加锁耗时及时钟漂移，有效期不足时视为失败。
+ * 失败及释放时，异步在所有节点上解锁，不等待解锁结果；失败后才返回加锁成功的在途请求，在返回时再解锁一次。<br/>
+ *
+ * Redlock的锁不使用看门狗续期，持有时间小于等于0时使用{@link #defaultLeaseTime}。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class RedLockTemplate {
+
+    /**
+     * 相互独立的Redis节点
+     */
+    @Getter
+    private final List<RedissonClient> clients;
+
+    /**
+     * 加锁成功所需的最少节点数量，即多数节点
+     */
+    @Getter
+    private final int quorum;
+
+    /**
+     * 锁key编码器，为null时直接使用锁名称作为Redis key
+     */
+    @Setter
+    @Getter
+    protected LockKeyEncoder keyEncoder;
+
+    /**
+     * 时钟漂移系数，租约有效期会扣除 持有时间 * clockDriftFactor + 2ms 的时钟漂移。默认0.01
+     */
+    @Setter
+    @Getter
+    protected double clockDriftFactor = 0.01;
+
+    /**
+     * 单次尝试等待节点响应的最长时间，单位毫秒，超时未形成多数时视为本次失败。默认500ms
+     */
+    @Setter
+    @Getter
+    protected long responseTimeout = 500;
+
+    /**
+     * 加锁失败后，重试前的最大随机退避时间，单位毫秒，避免多个竞争者同时重试导致都无法形成多数。默认50ms
+     */
+    @Setter
+    @Getter
+    protected long retryDelay = 50;
+
+    /**
+     * 未指定持有时间时使用的持有时间，单位毫秒。默认30000ms
+     */
+    @Setter
+    @Getter
+    protected long defaultLeaseTime = 30000;
+
+
+    /**
+     * @param clients 相互独立的Redis节点，建议为奇数个
+     */
+    public RedLockTemplate(List<RedissonClient> clients) {
+        if (clients == null || clients.isEmpty()) {
+            throw new IllegalArgumentException("Redlock至少需要一个Redis节点");
+        }
+
+        this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+        this.quorum = clients.size() / 2 + 1;
+    }
+
+
+    /**
+     * 尝试加锁，不等待，持有锁{@link #defaultLeaseTime}后自动释放
+     * @param lockName 锁名称
+     * @return 加锁成功时返回租约，失败时返回null
+     */
+    public RedLockLease tryLock(String lockName) {
+        return tryLock(lockName, 0, -1, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * 尝试加锁，在等待时间内失败时随机退避后重试
+     * @param lockName  锁名称
+     * @param waitTime  加锁等待时间，小于等于0时只尝试一次
+     * @param leaseTime 加锁成功最大持有时间，超过后各节点上的锁自动过期；小于等于0时使用{@link #defaultLeaseTime}
+     * @param timeUnit  waitTime和leaseTime的时间单位
+     * @return 加锁成功时返回租约，失败时返回null
+     */
+    public RedLockLease tryLock(String lockName, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        long leaseMillis = leaseTime <= 0 ? defaultLeaseTime : timeUnit.toMillis(leaseTime);
+        long deadline = System.nanoTime() + timeUnit.toNanos(Math.max(waitTime, 0));
+
+        String key = keyEncoder == null ? lockName : keyEncoder.encode(lockName);
+        List<RLock> locks = new ArrayList<>(clients.size());
+        for (RedissonClient client : clients) {
+            locks.add(client.getLock(key));
+        }
+
+        log.info("[redisson.locker] 尝试申请锁 name={}", lockName);
+        while (true) {
+            RedLockLease lease = tryAcquire(lockName, locks, leaseMillis);
+            if (lease != null) {
+                log.info("[redisson.locker] 申请锁成功 name={} nodes={}/{}", lockName, lease.getAcquiredNodes(), locks.size());
+                return lease;
+            }
+
+            long remain = deadline - System.nanoTime();
+            if (remain <= 0) {
+                log.info("[redisson.locker] 申请锁失败 name={}", lockName);
+                return null;
+            }
+
+            try {
+                long delay = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(Math.max(retryDelay, 1)) + 1);
+                TimeUnit.NANOSECONDS.sleep(Math.min(delay, remain));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("[redisson.locker] 申请锁失败，线程被中断 name={}", lockName);
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * 向所有节点并行发送一次加锁请求，多数节点成功且租约有效期为正时返回租约，否则在所有节点上异步解锁
+     */
+    private RedLockLease tryAcquire(String lockName, List<RLock> locks, long leaseMillis) {
+        long ownerId = LockTemplate.newOwnerId();
+        long startAt = System.nanoTime();
+
+        int rejectLimit = locks.size() - quorum;
+        AtomicInteger acquired = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        CompletableFuture<Boolean> decided = new CompletableFuture<>();
+        for (RLock lock : locks) {
+            lock.tryLockAsync(0, leaseMillis, TimeUnit.MILLISECONDS, ownerId).onComplete((succeed, e) -> {
+                if (e == null && Boolean.TRUE.equals(succeed)) {
+                    // 本次尝试已判定失败，立即解锁前未返回的节点，在此补充解锁，防止锁残留到过期
+                    if (abandoned.get()) {
+                        unlockNode(lock, ownerId);
+                    } else if (acquired.incrementAndGet() >= quorum) {
+                        decided.complete(true);
+                    }
+                } else {
+                    if (e != null) {
+                        log.warn("[redisson.locker] 节点加锁请求失败 name={}", lockName, e);
+                    }
+                    if (rejected.incrementAndGet() > rejectLimit) {
+                        decided.complete(false);
+                    }
+                }
+            });
+        }
+
+        boolean succeed = false;
+        try {
+            succeed = decided.get(Math.min(responseTimeout, leaseMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("[redisson.locker] 等待节点响应超时 name={}", lockName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("[redisson.locker] 申请锁异常 name={}", lockName, e.getCause());
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startAt);
+        long drift = (long) (leaseMillis * clockDriftFactor) + 2;
+        long validity = leaseMillis - elapsed - drift;
+        if (succeed && validity > 0) {
+            return new RedLockLease(lockName, acquired.get(), locks, ownerId,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(validity));
+        }
+
+        // 未形成多数或有效期不足，已加锁成功的节点及仍在途的请求都需要释放；先标记失败，之后返回的请求由回调解锁
+        abandoned.set(true);
+        unlockAll(locks, ownerId);
+        return null;
+    }
+
+
+    /**
+     * 在所有节点上异步释放锁，不等待解锁结果。已过期或未加锁成功的节点会解锁失败，不影响其他节点
+     * @param lease 加锁成功的租约，为null时不处理
+     */
+    public void unlock(RedLockLease lease) {
+        if (lease == null) {
+            return;
+        }
+
+        unlockAll(lease.locks, lease.ownerId);
+        log.info("[redisson.locker] 释放锁 name={}", lease.getName());
+    }
+
+
+    /**
+     * 在所有节点上异步释放指定持有者的锁
+     */
+    private void unlockAll(List<RLock> locks, long ownerId) {
+        for (RLock lock : locks) {
+            unlockNode(lock, ownerId);
+        }
+    }
+
+
+    /**
+     * 在单个节点上异步释放指定持有者的锁
+     */
+    private void unlockNode(RLock lock, long ownerId) {
+        lock.unlockAsync(ownerId).onComplete((r, e) -> {
+            // 未持有锁的节点会抛出非法监视器异常，属于正常情况
+            if (e != null && !(e instanceof IllegalMonitorStateException)) {
+                log.warn("[redisson.locker] 节点解锁失败 name={}", lock.getName(), e);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * 自旋锁，包装Redisson的RLock，等待锁时以指数退避轮询加锁，不订阅解锁通知。
+ * 适用于持有时间只有几毫秒的临界区，此时订阅、取消订阅解锁频道的开销高于临界区本身。
+ * 锁在Redis中的数据结构与RLock一致，可与同名的RLock互斥。异步加锁方法直接使用被包装的RLock。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class SpinLock implements RLock {
+
+    /**
+     * 被包装的锁，每次轮询以不等待的方式尝试加锁
+     */
+    private final RLock delegate;
+
+    /**
+     * 首次退避时间，单位纳秒
+     */
+    private final long initialBackoff;
+
+    /**
+     * 最大退避时间，单位纳秒
+     */
+    private final long maxBackoff;
+
+
+    /**
+     * @param delegate 被包装的锁
+     * @param initialBackoff 首次退避时间，每次轮询失败后翻倍
+     * @param maxBackoff 最大退避时间
+     * @param timeUnit initialBackoff和maxBackoff的时间单位
+     */
+    public SpinLock(RLock delegate, long initialBackoff, long maxBackoff, TimeUnit timeUnit) {
+        this.delegate = delegate;
+        this.initialBackoff = Math.max(timeUnit.toNanos(initialBackoff), 1);
+        this.maxBackoff = Math.max(timeUnit.toNanos(maxBackoff), this.initialBackoff);
+    }
+
+
+    /**
+     * 轮询加锁，直到加锁成功或超过等待时间
+     * @param waitNanos 等待时间，单位纳秒，小于0时一直等待
+     * @param leaseTime 加锁成功最大持有时间，小于等于0时由看门狗续期
+     * @param unit leaseTime的时间单位
+     * @return 是否加锁成功
+     */
+    private boolean spin(long waitNanos, long leaseTime, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + waitNanos;
+        long backoff = initialBackoff;
+        while (true) {
+            // 等待时间为0时，RLock只执行一次加锁脚本，不会订阅解锁频道
+            if (delegate.tryLock(0, leaseTime, unit)) {
+                return true;
+            }
+
+            long sleepNanos = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+            if (waitNanos >= 0) {
+                long remain = deadline - System.nanoTime();
+                if (remain <= 0) {
+                    return false;
+                }
+                sleepNanos = Math.min(sleepNanos, remain);
+            }
+
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            backoff = Math.min(backoff << 1, maxBackoff);
+        }
+    }
+
+
+    @Override
+    public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return spin(unit.toNanos(Math.max(waitTime, 0)), leaseTime, unit);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return tryLock(time, -1, unit);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return delegate.tryLock();
+    }
+
+    @Override
+    public void lockInterruptibly(long leaseTime, TimeUnit unit) throws InterruptedException {
+        spin(-1, leaseTime, unit);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        lockInterruptibly(-1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 阻塞加锁，等待期间被中断时继续等待，加锁成功后恢复中断标记
+     */
+    @Override
+    public void lock(long leaseTime, TimeUnit unit) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                lockInterruptibly(leaseTime, unit);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lock() {
+        lock(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void unlock() {
+        delegate.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return delegate.newCondition();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public boolean forceUnlock() {
+        return delegate.forceUnlock();
+    }
+
+    @Override
+    public boolean isLocked() {
+        return delegate.isLocked();
+    }
+
+    @Override
+    public boolean isHeldByThread(long threadId) {
+        return delegate.isHeldByThread(threadId);
+    }
+
+    @Override
+    public boolean isHeldByCurrentThread() {
+        return delegate.isHeldByCurrentThread();
+    }
+
+    @Override
+    public int getHoldCount() {
+        return delegate.getHoldCount();
+    }
+
+    @Override
+    public long remainTimeToLive() {
+        return delegate.remainTimeToLive();
+    }
+
+    @Override
+    public RFuture<Boolean> forceUnlockAsync() {
+        return delegate.forceUnlockAsync();
+    }
+
+    @Override
+    public RFuture<Void> unlockAsync() {
+        return delegate.unlockAsync();
+    }
+
+    @Override
+    public RFuture<Void> unlockAsync(long threadId) {
+        return delegate.unlockAsync(threadId);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync() {
+        return delegate.tryLockAsync();
+    }
+
+    @Override
+    public RFuture<Void> lockAsync() {
+        return delegate.lockAsync();
+    }
+
+    @Override
+    public RFuture<Void> lockAsync(long threadId) {
+        return delegate.lockAsync(threadId);
+    }
+
+    @Override
+    public RFuture<Void> lockAsync(long leaseTime, TimeUnit unit) {
+        return delegate.lockAsync(leaseTime, unit);
+    }
+
+    @Override
+    public RFuture<Void> lockAsync(long leaseTime, TimeUnit unit, long threadId) {
+        return delegate.lockAsync(leaseTime, unit, threadId);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(long threadId) {
+        return delegate.tryLockAsync(threadId);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(long waitTime, TimeUnit unit) {
+        return delegate.tryLockAsync(waitTime, unit);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(long waitTime, long leaseTime, TimeUnit unit) {
+        return delegate.tryLockAsync(waitTime, leaseTime, unit);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(long waitTime, long leaseTime, TimeUnit unit, long threadId) {
+        return delegate.tryLockAsync(waitTime, leaseTime, unit, threadId);
+    }
+
+    @Override
+    public RFuture<Integer> getHoldCountAsync() {
+        return delegate.getHoldCountAsync();
+    }
+
+    @Override
+    public RFuture<Boolean> isLockedAsync() {
+        return delegate.isLockedAsync();
+    }
+
+    @Override
+    public RFuture<Long> remainTimeToLiveAsync() {
+        return delegate.remainTimeToLiveAsync();
+    }
+
+    @Override
+    public String toString() {
+        return "SpinLock{" + delegate.getName() + "}";
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 粘性加锁模板。释放锁时不立即归还Redis锁，而是在本节点"停放"一小段时间，期间本节点再次申请同名锁时直接本地交接，无需访问Redis。<br/>
+ * 停放超时，或其他节点通过pub/sub申请该锁时，归还Redis锁。连续访问同一热点锁时，一批请求只需一次Redis加解锁。<br/>
+ *
+ * 本地交接信任本地记录的有效期（按加锁请求发出的时间计算，并扣除时钟漂移），剩余有效期不低于持有时间的{@link #renewThreshold}时
+ * 直接交接，不访问Redis；低于时先校验Redis锁仍由本节点持有并刷新有效期。<br/>
+ *
+ * 需注意：粘性锁在Redis中以节点维度持有，不同节点都应使用粘性模板，申请锁时才能通知持有节点归还。
+ * 粘性锁不使用看门狗续期，未指定持有时间时，使用{@link #defaultLeaseTime}作为持有时间。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class StickyLockTemplate extends LockTemplate {
+
+    /**
+     * 申请归还粘性锁的pub/sub频道，消息内容为锁名称
+     */
+    public static final String DEMAND_TOPIC = "limbo_locker__sticky_demand";
+
+    /**
+     * 接管停放中的锁时，校验本节点仍持有Redis锁后刷新有效期。KEYS[1]为锁key，ARGV[1]为有效期毫秒数，ARGV[2]为持有者标识
+     */
+    private static final String TAKEOVER_SCRIPT =
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * 锁释放后在本节点停放的时长，单位毫秒
+     */
+    @Getter
+    @Setter
+    private long parkTime = 200;
+
+    /**
+     * 未指定持有时间时，Redis锁的持有时间，单位毫秒
+     */
+    @Getter
+    @Setter
+    private long defaultLeaseTime = 30000;
+
+    /**
+     * 本地交接时，剩余有效期低于持有时间的该比例，需访问Redis刷新有效期；不低于时直接交接，不刷新有效期。默认0.5
+     */
+    @Getter
+    @Setter
+    private double renewThreshold = 0.5;
+
+    /**
+     * 时钟漂移系数，本地记录的有效期会扣除 持有时间 * clockDriftFactor + 2ms 的时钟漂移。默认0.01
+     */
+    @Getter
+    @Setter
+    private double clockDriftFactor = 0.01;
+
+    /**
+     * 本节点持有的粘性锁，key为锁名称
+     */
+    private final Map<String, StickyLease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 停放超时后归还锁的调度器
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "limbo-sticky-locker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 归还申请频道
+     */
+    private volatile RTopic demandTopic;
+
+
+    /**
+     * {@inheritDoc}
+     * 本节点停放着同名锁时直接本地交接，否则向Redis申请锁；立即申请失败时，会通知持有节点归还锁后再等待。
+     */
+    @Override
+    protected boolean doTryLock(RLock lock, long waitTime, long leaseTime, TimeUnit timeUnit) throws InterruptedException {
+        long startAt = System.nanoTime();
+        if (leaseTime <= 0) {
+            leaseTime = timeUnit.convert(defaultLeaseTime, TimeUnit.MILLISECONDS);
+        }
+
+        String lockName = lock.getName();
+        StickyLease lease = acquireLocalLease(lock, startAt, timeUnit.toNanos(waitTime));
+        if (lease == null) {
+            return false;
+        }
+
+        boolean acquired = false;
+        try {
+            // 当前线程重入
+            if (lease.local.getHoldCount() > 1) {
+                acquired = true;
+                return true;
+            }
+
+            // 停放或排队交接的锁剩余有效期充足时，直接本地交接；不足时确认Redis锁仍由本节点持有并刷新有效期后交接，
+            // 确认失败时，说明Redis锁已失效，放弃停放的锁，按正常流程申请
+            if (lease.takeOver()) {
+                if (lease.expireAt - System.nanoTime() >= (long) (timeUnit.toNanos(leaseTime) * renewThreshold)) {
+                    acquired = true;
+                    return true;
+                }
+
+                long renewAt = System.nanoTime();
+                if (renewParkedLease(lease, leaseTime, timeUnit)) {
+                    lease.hold(renewAt, validNanos(leaseTime, timeUnit));
+                    acquired = true;
+                    return true;
+                }
+                lease.redisHeld = false;
+            }
+
+            // 先立即尝试一次，失败时通知持有节点归还，并在剩余时间内等待
+            if (!acquireRedisLock(lease, 0, leaseTime, timeUnit)) {
+                getDemandTopic().publishAsync(lockName);
+
+                long remainTime = timeUnit.toNanos(waitTime) - (System.nanoTime() - startAt);
+                if (remainTime <= 0 || !acquireRedisLock(lease, remainTime, timeUnit.toNanos(leaseTime), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            }
+
+            lease.hold(startAt, validNanos(leaseTime, timeUnit));
+            acquired = true;
+            return true;
+        } finally {
+            if (!acquired) {
+                lease.local.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 最外层释放时不归还Redis锁，而是停放一段时间，期间其他节点申请了该锁则立即归还。
+     */
+    @Override
+    public void unlock(RLock lock) {
+        StickyLease lease = leases.get(lock.getName());
+        if (lease == null || !lease.local.isHeldByCurrentThread()) {
+            super.unlock(lock);
+            return;
+        }
+
+        try {
+            if (lease.local.getHoldCount() > 1 || !lease.redisHeld) {
+                return;
+            }
+
+            if (lease.demanded) {
+                // 其他节点在等待，立即归还
+                returnLease(lease);
+            } else {
+                // 停放一段时间，有本地等待者时由其交接并取消停放；等待者超时离开时，停放超时后归还
+                lease.parkTimer = scheduler.schedule(() -> expireLease(lease), parkTime, TimeUnit.MILLISECONDS);
+                invalidateNegativeCache(lease);
+            }
+        } finally {
+            lease.local.unlock();
+            releasePriorityGate(lock);
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 本节点持有或停放着同名锁时，也视为本节点持有。
+     */
+    @Override
+    protected boolean isHeldLocally(RLock lock) {
+        StickyLease lease = leases.get(lock.getName());
+        return (lease != null && lease.redisHeld) || super.isHeldLocally(lock);
+    }
+
+
+    /**
+     * 归还所有停放中的锁，并停止调度器
+     */
+    public void shutdown() {
+        RTopic topic = this.demandTopic;
+        if (topic != null) {
+            topic.removeAllListeners();
+        }
+
+        scheduler.shutdownNow();
+        leases.values().forEach(this::expireLease);
+    }
+
+
+    /**
+     * 获取本地租约，并加本地锁，保证本节点内互斥。租约在等待期间被归还时，重新获取新的租约。
+     * @return 已加本地锁的租约，等待超时返回null
+     */
+    private StickyLease acquireLocalLease(RLock lock, long startAt, long waitNanos) throws InterruptedException {
+        String lockName = lock.getName();
+        while (true) {
+            StickyLease lease = leases.computeIfAbsent(lockName, name -> new StickyLease(lock, nextOwnerId()));
+            long remainTime = waitNanos - (System.nanoTime() - startAt);
+            if (!lease.local.tryLock(Math.max(remainTime, 0), TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+
+            if (leases.get(lockName) == lease) {
+                return lease;
+            }
+            lease.local.unlock();
+        }
+    }
+
+
+    /**
+     * 计算本地记录的有效时长，扣除时钟漂移
+     * @return 有效时长，单位纳秒
+     */
+    private long validNanos(long leaseTime, TimeUnit timeUnit) {
+        long drift = (long) (timeUnit.toMillis(leaseTime) * clockDriftFactor) + 2;
+        return timeUnit.toNanos(leaseTime) - TimeUnit.MILLISECONDS.toNanos(drift);
+    }
+
+
+    /**
+     * 申请Redis锁
+     */
+    private boolean acquireRedisLock(StickyLease lease, long waitTime, long leaseTime, TimeUnit timeUnit) throws InterruptedException {
+        try {
+            return lease.lock.tryLockAsync(waitTime, leaseTime, timeUnit, lease.ownerId).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new LockException(cause.getMessage());
+        }
+    }
+
+
+    /**
+     * 校验Redis锁仍由本节点持有，并按新的持有时间刷新有效期，访问Redis失败时视为校验失败
+     * @return Redis锁是否仍由本节点持有
+     */
+    private boolean renewParkedLease(StickyLease lease, long leaseTime, TimeUnit timeUnit) {
+        String lockName = lease.lock.getName();
+        RedissonClient client = routeClient(lockName);
+        try {
+            Long result = client.getScript(LongCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, TAKEOVER_SCRIPT,
+                    RScript.ReturnType.INTEGER, Collections.singletonList(lockName),
+                    timeUnit.toMillis(leaseTime), client.getId() + ":" + lease.ownerId);
+            return result != null && result == 1;
+        } catch (RuntimeException e) {
+            log.warn("[redisson.locker] 接管停放的锁失败 name={}", lockName, e);
+            return false;
+        }
+    }
+
+
+    /**
+     * 停放超时，或收到归还申请时，归还未被使用的锁
+     */
+    private void expireLease(StickyLease lease) {
+        // 锁正在被使用，等使用者释放时再处理
+        if (!lease.local.tryLock()) {
+            return;
+        }
+
+        try {
+            returnLease(lease);
+        } finally {
+            lease.local.unlock();
+        }
+    }
+
+
+    /**
+     * 归还Redis锁，需在持有本地锁时调用
+     */
+    private void returnLease(StickyLease lease) {
+        lease.cancelPark();
+        lease.demanded = false;
+        leases.remove(lease.lock.getName(), lease);
+
+        if (lease.redisHeld) {
+            lease.redisHeld = false;
+            lease.lock.unlockAsync(lease.ownerId).onComplete((r, e) -> {
+                if (e != null) {
+                    log.warn("[redisson.locker] 归还锁失败 name={}", lease.lock.getName(), e);
+                }
+                invalidateNegativeCache(lease);
+            });
+        }
+    }
+
+
+    /**
+     * 锁在本节点停放或归还后，失效锁占用近端缓存中的记录
+     */
+    private void invalidateNegativeCache(StickyLease lease) {
+        NegativeLockCache cache = this.negativeLockCache;
+        if (cache != null) {
+            cache.invalidate(lease.lock.getName());
+        }
+    }
+
+
+    /**
+     * 收到其他节点的归还申请
+     */
+    private void onDemand(String lockName) {
+        StickyLease lease = leases.get(lockName);
+        if (lease != null) {
+            lease.demanded = true;
+            scheduler.execute(() -> expireLease(lease));
+        }
+    }
+
+
+    /**
+     * 获取归还申请频道，首次获取时订阅
+     */
+    private RTopic getDemandTopic() {
+        RTopic topic = this.demandTopic;
+        if (topic == null) {
+            synchronized (this) {
+                if ((topic = this.demandTopic) == null) {
+                    topic = redisson.getTopic(DEMAND_TOPIC, StringCodec.INSTANCE);
+                    topic.addListener(String.class, (channel, lockName) -> onDemand(lockName));
+                    this.demandTopic = topic;
+                }
+            }
+        }
+        return topic;
+    }
+
+
+    /**
+     * 本节点持有的粘性锁租约
+     */
+    private static class StickyLease {
+
+        /**
+         * 本地锁，保证本节点内互斥
+         */
+        final ReentrantLock local = new ReentrantLock();
+
+        /**
+         * Redis锁
+         */
+        final RLock lock;
+
+        /**
+         * Redis锁的持有者ID
+         */
+        final long ownerId;
+
+        /**
+         * 是否持有Redis锁，由本地锁保护修改
+         */
+        volatile boolean redisHeld;
+
+        /**
+         * Redis锁预计过期的时间，已扣除时钟漂移，System.nanoTime()
+         */
+        long expireAt;
+
+        /**
+         * 停放超时任务
+         */
+        ScheduledFuture<?> parkTimer;
+
+        /**
+         * 是否有其他节点申请归还
+         */
+        volatile boolean demanded;
+
+        StickyLease(RLock lock, long ownerId) {
+            this.lock = lock;
+            this.ownerId = ownerId;
+        }
+
+        /**
+         * 登记持有Redis锁
+         * @param requestAt 加锁或续期请求发出的时间，System.nanoTime()
+         * @param validNanos 扣除时钟漂移后的有效时长，单位纳秒
+         */
+        void hold(long requestAt, long validNanos) {
+            this.redisHeld = true;
+            this.expireAt = requestAt + validNanos;
+        }
+
+        /**
+         * 接管停放中的Redis锁，Redis锁已失效时返回false
+         */
+        boolean takeOver() {
+            cancelPark();
+            if (!redisHeld) {
+                return false;
+            }
+
+            // 本地记录的有效期已过，Redis锁可能已被释放
+            if (expireAt - System.nanoTime() <= 0) {
+                redisHeld = false;
+                return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * 取消停放超时任务
+         */
+        void cancelPark() {
+            if (parkTimer != null) {
+                parkTimer.cancel(false);
+                parkTimer = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 集群单例注解，通常与<code>@Scheduled</code>一起使用。集群中只有持有领导租约的节点执行方法，其他节点直接跳过，
+ * 跳过时不访问Redis，方法返回null，基本类型返回默认值。领导租约由{@link org.limbo.locker.core.LeaderElector}维护。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface ClusterSingleton {
+
+    /**
+     * 领导分组名称，同一分组的方法由同一个领导节点执行，不同分组可以分散到不同节点。默认default。
+     */
+    String value() default "default";
+
+}
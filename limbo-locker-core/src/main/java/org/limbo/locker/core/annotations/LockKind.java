@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.annotations;
+
+/**
+ * 锁类型
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public enum LockKind {
+
+    /**
+     * 可重入锁，即Redisson的RLock。释放时通过发布订阅唤醒所有等待者重新竞争
+     */
+    REENTRANT,
+
+    /**
+     * 公平锁，即Redisson的FairLock。等待者在Redis队列中排队，按先来后到获取锁，释放时只唤醒队首的等待者，
+     * 避免高竞争下所有等待者同时重试的惊群问题
+     */
+    FAIR,
+
+    /**
+     * 自旋锁，即{@link org.limbo.locker.core.SpinLock}。等待时以指数退避轮询加锁，不订阅解锁通知，
+     * 适用于持有时间只有几毫秒的临界区。与同名的{@link #REENTRANT}锁互斥
+     */
+    SPIN
+
+}
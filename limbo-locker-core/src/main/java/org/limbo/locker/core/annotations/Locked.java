@@ -66,4 +66,60 @@ public @interface Locked {
      */
     String evaluator() default "";
 
+    /**
+     * 锁分段数量。大于0时，计算出的锁名会被散列到固定数量的分段锁上，以少量误竞争换取Redis中锁key数量有上限；
+     * 需要互斥的方法应使用相同的分段数量。小于等于0时不分段。默认0。
+     */
+    int stripes() default 0;
+
+    /**
+     * 加锁条件，SpEL表达式，根据方法参数决定是否需要加锁。表达式计算结果为false时，不加锁直接执行方法。为空时始终加锁。
+     */
+    String condition() default "";
+
+    /**
+     * 跳过条件，SpEL表达式，通常用于检查业务状态，如 <code>@orderService.isPaid(#orderId)</code>。
+     * 加锁前计算结果为true时，不加锁也不执行方法；加锁成功后会再次计算，结果为true时释放锁并跳过方法执行。
+     * 跳过执行时，方法返回null，基本类型返回默认值。为空时不检查。
+     */
+    String skipIf() default "";
+
+    /**
+     * 是否开启本地单飞。开启后，本节点同名锁只由第一个调用者加锁执行，并发的其他调用者等待并共享同一个执行结果或异常，
+     * 不访问Redis。适用于相同锁名的调用执行结果相同的场景，如按key重新计算数据。默认false。
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * 分布式单飞的结果共享有效期，单位毫秒。大于0时开启，加锁执行成功后，将执行结果写入Redis并通知其他节点，
+     * 执行期间等待该锁的调用者直接使用共享结果，不再加锁执行；执行结束后的新调用不使用之前的结果，仍会加锁执行。
+     * 执行结果需能被Redisson配置的编解码器序列化，执行抛出异常时不共享。小于等于0时不开启。默认0。
+     */
+    long sharedResultTtl() default 0;
+
+    /**
+     * 锁类型。{@link LockKind#FAIR}为公平锁，等待者按先来后到排队，释放时只唤醒队首的等待者，适用于高竞争下需要控制等待长尾的场景。
+     * 默认{@link LockKind#REENTRANT}。
+     */
+    LockKind lockKind() default LockKind.REENTRANT;
+
+    /**
+     * 加锁优先级，越大越优先。非0时，本节点同名锁的等待者按优先级排队，锁释放时交给优先级最高的等待者；
+     * 等待越久的低优先级等待者优先级会逐渐提升，不会饿死。优先级只在本节点内生效。默认0，不排队。
+     */
+    int priority() default 0;
+
+    /**
+     * 加锁优先级表达式，SpEL表达式，根据方法参数计算优先级，如 <code>#user.vip ? 10 : 0</code>。
+     * 指定后覆盖{@link #priority()}。为空时使用{@link #priority()}。
+     */
+    String priorityExpression() default "";
+
+    /**
+     * 是否使用Redlock加锁。开启后在{@link org.limbo.locker.core.RedLockTemplate}配置的多个独立Redis节点上并行加锁，
+     * 多数节点成功即加锁成功，需在切面中配置RedLockTemplate。Redlock不使用看门狗，holdTime小于等于0时使用模板的默认持有时间。
+     * 开启后lockKind、singleFlight、sharedResultTtl、priority配置不生效。默认false。
+     */
+    boolean redlock() default false;
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.annotations;
+
+/**
+ * 联锁加锁模式
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public enum MultiLockMode {
+
+    /**
+     * 获取全部锁后才执行方法
+     */
+    ALL,
+
+    /**
+     * 从候选锁中获取任意指定数量的空闲锁后即执行方法，适用于争抢可互换的资源，如打印机、分片、槽位
+     */
+    ANY
+
+}
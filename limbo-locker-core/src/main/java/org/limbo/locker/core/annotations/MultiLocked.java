@@ -46,7 +46,7 @@ public @interface MultiLocked {
     String[] names() default {};
 
     /**
-     * 锁名，SpEL表达式计算
+     * 锁名，SpEL表达式计算。表达式计算结果为集合或数组时，会展开为多个锁名，如 <code>#orders.![id]</code>
      */
     String[] expressions() default {};
 
@@ -75,9 +75,50 @@ public @interface MultiLocked {
      */
     String evaluator() default "";
 
+    /**
+     * 锁分段数量。大于0时，计算出的锁名会被散列到固定数量的分段锁上，以少量误竞争换取Redis中锁key数量有上限；
+     * 需要互斥的方法应使用相同的分段数量。小于等于0时不分段。默认0。
+     */
+    int stripes() default 0;
+
+    /**
+     * 加锁条件，SpEL表达式，根据方法参数决定是否需要加锁。表达式计算结果为false时，不加锁直接执行方法。为空时始终加锁。
+     */
+    String condition() default "";
+
+    /**
+     * 跳过条件，SpEL表达式，通常用于检查业务状态，如 <code>@orderService.isPaid(#orderId)</code>。
+     * 加锁前计算结果为true时，不加锁也不执行方法；加锁成功后会再次计算，结果为true时释放锁并跳过方法执行。
+     * 跳过执行时，方法返回null，基本类型返回默认值。为空时不检查。
+     */
+    String skipIf() default "";
+
     /**
      * 是否自动为联锁名排序，联锁加锁时，保证按照一定的逻辑顺序加锁，能够防止死锁
      */
     boolean autoSortNames() default false;
 
+    /**
+     * 联锁名称数量上限，表达式展开、去重后的锁名数量超过上限时，将抛出异常，不会加锁。小于等于0时不限制。默认64。
+     */
+    int maxNames() default 64;
+
+    /**
+     * 联锁加锁模式。{@link MultiLockMode#ALL}获取全部锁；{@link MultiLockMode#ANY}以随机顺序尝试候选锁，
+     * 获取到{@link #count()}个空闲锁即执行方法，方法中通过{@link org.limbo.locker.core.interceptor.LockContext}
+     * 获取分配到的锁名称。默认ALL。
+     */
+    MultiLockMode mode() default MultiLockMode.ALL;
+
+    /**
+     * ANY模式下需要获取的锁数量，不可超过去重后的候选锁数量。默认1。
+     */
+    int count() default 1;
+
+    /**
+     * 锁类型，联锁中的每个锁均使用此类型，ALL模式下生效。持有时间很短的批量资源可使用{@link LockKind#SPIN}，
+     * 避免逐个锁订阅解锁通知。默认{@link LockKind#REENTRANT}。
+     */
+    LockKind lockKind() default LockKind.REENTRANT;
+
 }
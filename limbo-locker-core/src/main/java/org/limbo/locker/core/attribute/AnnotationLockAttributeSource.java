@@ -88,6 +88,10 @@ public class AnnotationLockAttributeSource extends AbstractLockAttributeSource {
         mla.setLockNames(attributes.getStringArray("names"));
         mla.setLockNameExpressions(attributes.getStringArray("expressions"));
         mla.setLockType(LockDefinition.LOCK_TYPE_MULTI);
+        mla.setAutoSortNames(attributes.getBoolean("autoSortNames"));
+        mla.setMaxNames(attributes.getNumber("maxNames"));
+        mla.setMode(attributes.getEnum("mode"));
+        mla.setCount(attributes.getNumber("count"));
 
         extractLockAttribute(attributes, mla);
         return mla;
@@ -104,6 +108,11 @@ public class AnnotationLockAttributeSource extends AbstractLockAttributeSource {
         sla.setLockName(attributes.getString("name"));
         sla.setLockNameExpression(attributes.getString("expression"));
         sla.setLockType(LockDefinition.LOCK_TYPE_SINGLE);
+        sla.setSingleFlight(attributes.getBoolean("singleFlight"));
+        sla.setSharedResultTtl(Duration.ofMillis(attributes.getNumber("sharedResultTtl")));
+        sla.setPriority(attributes.getNumber("priority"));
+        sla.setPriorityExpression(attributes.getString("priorityExpression"));
+        sla.setRedlock(attributes.getBoolean("redlock"));
 
         extractLockAttribute(attributes, sla);
         return sla;
@@ -119,6 +128,10 @@ public class AnnotationLockAttributeSource extends AbstractLockAttributeSource {
         lockAttr.setHoldTime(Duration.ofMillis(attributes.getNumber("holdTime")));
         lockAttr.setRetryTimes(attributes.getNumber("retryTimes"));
         lockAttr.setEvaluatorBeanName(attributes.getString("evaluator"));
+        lockAttr.setStripes(attributes.getNumber("stripes"));
+        lockAttr.setCondition(attributes.getString("condition"));
+        lockAttr.setSkipIf(attributes.getString("skipIf"));
+        lockAttr.setLockKind(attributes.getEnum("lockKind"));
     }
 
 }
@@ -19,6 +19,7 @@ package org.limbo.locker.core.attribute;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.limbo.locker.core.annotations.LockKind;
 
 import java.time.Duration;
 
@@ -62,4 +63,24 @@ public abstract class LockAttribute implements LockDefinition {
      */
     protected String evaluatorBeanName;
 
+    /**
+     * 锁分段数量，大于0时，计算出的锁名会被散列到固定数量的分段锁上。小于等于0时不分段。
+     */
+    protected int stripes;
+
+    /**
+     * 加锁条件表达式，计算结果为false时不加锁直接执行方法。为空时始终加锁。
+     */
+    protected String condition;
+
+    /**
+     * 跳过条件表达式，在加锁前及加锁后各计算一次，计算结果为true时跳过方法执行。为空时不检查。
+     */
+    protected String skipIf;
+
+    /**
+     * 锁类型，默认可重入锁
+     */
+    protected LockKind lockKind = LockKind.REENTRANT;
+
 }
@@ -22,6 +22,7 @@ import lombok.Setter;
 import lombok.ToString;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.limbo.locker.core.annotations.MultiLockMode;
 import org.limbo.locker.core.annotations.MultiLocked;
 
 import java.util.Arrays;
@@ -53,6 +54,21 @@ public class MultiLockAttributes extends LockAttribute {
      */
     private boolean autoSortNames;
 
+    /**
+     * 联锁名称数量上限，表达式展开、去重后的锁名数量超过上限时，将抛出异常。小于等于0时不限制。
+     */
+    private int maxNames;
+
+    /**
+     * 联锁加锁模式，默认获取全部锁
+     */
+    private MultiLockMode mode = MultiLockMode.ALL;
+
+    /**
+     * ANY模式下需要获取的锁数量
+     */
+    private int count = 1;
+
 
     public MultiLockAttributes() {
     }
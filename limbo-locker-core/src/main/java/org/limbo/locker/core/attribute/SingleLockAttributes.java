@@ -43,6 +43,31 @@ public class SingleLockAttributes extends LockAttribute {
      */
     private String lockNameExpression;
 
+    /**
+     * 是否开启本地单飞，本节点同名锁的并发调用者共享第一个调用者的执行结果
+     */
+    private boolean singleFlight;
+
+    /**
+     * 分布式单飞的结果共享有效期，为null或小于等于0时不开启
+     */
+    private Duration sharedResultTtl;
+
+    /**
+     * 加锁优先级，越大越优先，0表示不按优先级排队
+     */
+    private int priority;
+
+    /**
+     * 加锁优先级表达式，SpEL表达式，指定后覆盖priority
+     */
+    private String priorityExpression;
+
+    /**
+     * 是否使用Redlock在多个独立Redis节点上加锁
+     */
+    private boolean redlock;
+
 
     public SingleLockAttributes() {
     }
@@ -52,6 +77,15 @@ public class SingleLockAttributes extends LockAttribute {
         setWaitTime(Duration.ofMillis(locked.waitTime()));
         setRetryTimes(locked.retryTimes());
         setHoldTime(Duration.ofMillis(locked.holdTime()));
+        setStripes(locked.stripes());
+        setCondition(locked.condition());
+        setSkipIf(locked.skipIf());
+        setLockKind(locked.lockKind());
+        this.singleFlight = locked.singleFlight();
+        this.sharedResultTtl = Duration.ofMillis(locked.sharedResultTtl());
+        this.priority = locked.priority();
+        this.priorityExpression = locked.priorityExpression();
+        this.redlock = locked.redlock();
 
         String lockName = locked.name();
         if (StringUtils.isBlank(lockName)) {
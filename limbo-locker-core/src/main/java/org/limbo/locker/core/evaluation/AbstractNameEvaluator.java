@@ -18,6 +18,13 @@ package org.limbo.locker.core.evaluation;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.limbo.locker.core.LockException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * 抽象锁名计算器，提供了单锁、联锁的表达式计算抽象，具体的表达式执行交给子类处理。
@@ -65,25 +72,49 @@ public abstract class AbstractNameEvaluator implements NameEvaluator {
 
 
     /**
-     * 计算联锁名称
+     * 计算联锁名称。表达式计算结果会被展开、去重，如开启了自动排序，则按字典序排列。
      * @param context 锁名计算上下文
      * @return 单锁名称计算结果
      */
     protected NameEvaluateResult evaluateMultiLockName(MultiLockNameEvaluationContext context) {
-        // 指定了name，直接使用
+        Set<String> names = new LinkedHashSet<>();
+
         if (CollectionUtils.isNotEmpty(context.getNames())) {
-            return new NameEvaluateResult(context, context.getNames());
+            // 指定了name，直接使用
+            names.addAll(context.getNames());
+        } else {
+            // 未指定，则需要计算
+            for (String exp : context.getExpressions()) {
+                for (String name : evaluateLockNames(context, exp)) {
+                    if (names.add(name)) {
+                        context.addEvaluatedName(name);
+                    }
+                }
+            }
         }
 
-        // 未指定，则需要计算
-        String[] names = context.getExpressions().stream()
-                .map(exp -> {
-                    String name = evaluateLockName(context, exp);
-                    context.addEvaluatedName(name);
-                    return name;
-                })
-                .toArray(String[]::new);
-        return new NameEvaluateResult(context, names);
+        // 检测锁名数量上限
+        int maxNames = context.getMaxNames();
+        if (maxNames > 0 && names.size() > maxNames) {
+            throw new LockException("联锁数量" + names.size() + "超过上限" + maxNames);
+        }
+
+        String[] evaluatedNames = names.toArray(new String[0]);
+        if (context.isAutoSortNames()) {
+            Arrays.sort(evaluatedNames);
+        }
+        return new NameEvaluateResult(context, evaluatedNames);
+    }
+
+
+    /**
+     * 执行锁名表达式，表达式可能计算出多个锁名，默认只计算出一个锁名。
+     * @param context 上下文
+     * @param expression 表达式
+     * @return 表达式执行结果
+     */
+    protected Collection<String> evaluateLockNames(NameEvaluationContext context, String expression) {
+        return Collections.singletonList(evaluateLockName(context, expression));
     }
 
 
@@ -67,6 +67,8 @@ public class DefaultNameEvaluationContextFactory extends AbstractNameEvaluationC
         context.setLockAttribute(lockAttribute);
         context.setNames(lockAttribute.getLockNames());
         context.setExpressions(lockAttribute.getLockNameExpressions());
+        context.setAutoSortNames(lockAttribute.isAutoSortNames());
+        context.setMaxNames(lockAttribute.getMaxNames());
         return context;
     }
 
@@ -47,6 +47,16 @@ public class MultiLockNameEvaluationContext extends NameEvaluationContext {
      */
     private List<String> evaluatedNames;
 
+    /**
+     * 是否为计算后的锁名排序
+     */
+    private boolean autoSortNames;
+
+    /**
+     * 锁名数量上限，小于等于0时不限制
+     */
+    private int maxNames;
+
 
     /**
      * 新增一个锁名计算结果。前面的表达式计算完成后，结果可以在后面的表达式中使用
@@ -31,4 +31,26 @@ public interface NameEvaluator {
     NameEvaluateResult evaluate(NameEvaluationContext context);
 
 
+    /**
+     * 计算条件表达式，用于加锁条件及跳过条件。默认不支持条件表达式。
+     * @param context 锁名计算上下文
+     * @param expression 条件表达式
+     * @return 条件表达式计算结果
+     */
+    default boolean evaluateCondition(NameEvaluationContext context, String expression) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support condition expression");
+    }
+
+
+    /**
+     * 计算优先级表达式。默认不支持优先级表达式。
+     * @param context 锁名计算上下文
+     * @param expression 优先级表达式
+     * @return 优先级
+     */
+    default int evaluatePriority(NameEvaluationContext context, String expression) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support priority expression");
+    }
+
+
 }
\ No newline at end of file
@@ -18,23 +18,49 @@ package org.limbo.locker.core.evaluation.spel;
 
 import org.limbo.locker.core.evaluation.AbstractNameEvaluator;
 import org.limbo.locker.core.evaluation.NameEvaluationContext;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.expression.BeanFactoryResolver;
 import org.springframework.context.expression.MethodBasedEvaluationContext;
 import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.expression.BeanResolver;
+import org.springframework.util.ObjectUtils;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
- * 基于SpEL脚本实现的锁名计算器。
+ * 基于SpEL脚本实现的锁名计算器。作为Spring Bean使用时，表达式中可通过 <code>@beanName</code> 引用容器中的Bean。
  *
  * @author Brozen
  * @since 1.0
  */
-public class SpELNameEvaluator extends AbstractNameEvaluator {
+public class SpELNameEvaluator extends AbstractNameEvaluator implements BeanFactoryAware {
 
 
     private final CachedSpELExpressionEvaluator evaluator = new CachedSpELExpressionEvaluator();
 
+    /**
+     * 表达式中Bean引用的解析器，未设置BeanFactory时为null，表达式中不可引用Bean
+     */
+    private BeanResolver beanResolver;
+
+
+    /**
+     * 设置BeanFactory，表达式中的 <code>@beanName</code> 从中查找Bean
+     * @param beanFactory Spring BeanFactory
+     */
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanResolver = new BeanFactoryResolver(beanFactory);
+    }
+
 
     /**
      * {@inheritDoc}
@@ -44,13 +70,86 @@ public class SpELNameEvaluator extends AbstractNameEvaluator {
      */
     @Override
     protected String evaluateLockName(NameEvaluationContext context, String expression) {
+        return evaluateExpression(context, expression).toString();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 表达式计算结果为集合或数组时，每个元素都会作为一个锁名。
+     * @param context 上下文
+     * @param expression 表达式
+     * @return
+     */
+    @Override
+    protected Collection<String> evaluateLockNames(NameEvaluationContext context, String expression) {
+        Object returnValue = evaluateExpression(context, expression);
+
+        Collection<?> elements;
+        if (returnValue instanceof Collection) {
+            elements = (Collection<?>) returnValue;
+        } else if (returnValue.getClass().isArray()) {
+            elements = Arrays.asList(ObjectUtils.toObjectArray(returnValue));
+        } else {
+            return Collections.singletonList(returnValue.toString());
+        }
+
+        List<String> names = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            Objects.requireNonNull(element, () -> "SpEL [" + expression + "] returns null element on method "
+                    + context.getMethod().getName());
+            names.add(element.toString());
+        }
+        return names;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 表达式计算结果为Boolean或字符串"true"时视为true，计算结果为null时视为false。
+     * @param context 上下文
+     * @param expression 表达式
+     * @return
+     */
+    @Override
+    public boolean evaluateCondition(NameEvaluationContext context, String expression) {
         Method method = context.getMethod();
         MethodBasedEvaluationContext spelContext = createEvaluationContext(context, method, context.getArgs());
         Object returnValue = evaluator.evaluate(expression, context, method, spelContext);
-        Objects.requireNonNull(returnValue, () -> "SpEL [" + expression + "] returns null value on method " + method.getName());
+        if (returnValue instanceof Boolean) {
+            return (Boolean) returnValue;
+        }
+        return returnValue != null && Boolean.parseBoolean(returnValue.toString());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 表达式结果为数字时取整数部分，其他类型按字符串解析为整数。
+     */
+    @Override
+    public int evaluatePriority(NameEvaluationContext context, String expression) {
+        Object returnValue = evaluateExpression(context, expression);
+        if (returnValue instanceof Number) {
+            return ((Number) returnValue).intValue();
+        }
+        return Integer.parseInt(returnValue.toString().trim());
+    }
 
-        return returnValue.toString();
 
+    /**
+     * 执行SpEL表达式，表达式计算结果不可为null
+     * @param context 上下文
+     * @param expression 表达式
+     * @return 表达式执行结果
+     */
+    private Object evaluateExpression(NameEvaluationContext context, String expression) {
+        Method method = context.getMethod();
+        MethodBasedEvaluationContext spelContext = createEvaluationContext(context, method, context.getArgs());
+        Object returnValue = evaluator.evaluate(expression, context, method, spelContext);
+        Objects.requireNonNull(returnValue, () -> "SpEL [" + expression + "] returns null value on method " + method.getName());
+
+        return returnValue;
     }
 
 
@@ -73,6 +172,9 @@ public class SpELNameEvaluator extends AbstractNameEvaluator {
         MethodBasedEvaluationContext evaluationContext
                 = new MethodBasedEvaluationContext(context, method, args, new DefaultParameterNameDiscoverer());
         evaluationContext.setVariable("args", args);
+        if (beanResolver != null) {
+            evaluationContext.setBeanResolver(beanResolver);
+        }
 
         // 为参数生成别名
         for (int i = 0; i < args.length; i++) {
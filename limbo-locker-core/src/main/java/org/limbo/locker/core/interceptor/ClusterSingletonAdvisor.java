@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.limbo.locker.core.annotations.ClusterSingleton;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractBeanFactoryPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 集群单例切面定义，切点为标注了{@link ClusterSingleton}的方法。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class ClusterSingletonAdvisor extends AbstractBeanFactoryPointcutAdvisor {
+
+    /**
+     * 切点
+     */
+    private final Pointcut pointcut = new AnnotationMatchingPointcut(null, ClusterSingleton.class, true);
+
+
+    /**
+     * {@inheritDoc}
+     * @return
+     */
+    @Override
+    @Nonnull
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+}
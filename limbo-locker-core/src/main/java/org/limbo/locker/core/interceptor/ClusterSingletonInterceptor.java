@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import com.google.common.base.Defaults;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.limbo.locker.core.LeaderElector;
+import org.limbo.locker.core.annotations.ClusterSingleton;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集群单例方法拦截器，本节点是{@link ClusterSingleton}分组的领导时执行方法，否则跳过，基本类型返回默认值，其他类型返回null。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class ClusterSingletonInterceptor implements MethodInterceptor {
+
+    /**
+     * 未找到注解时使用的分组名称，与{@link ClusterSingleton#value()}默认值一致
+     */
+    private static final String DEFAULT_GROUP = "default";
+
+    @Setter
+    private LeaderElector leaderElector;
+
+    /**
+     * 方法所属的领导分组
+     */
+    private final Map<Method, String> groups = new ConcurrentHashMap<>();
+
+
+    /**
+     * {@inheritDoc}
+     * @param invocation
+     * @return
+     * @throws Throwable
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        String group = groups.computeIfAbsent(method, m -> determineGroup(m, invocation.getThis()));
+        if (!leaderElector.isLeader(group)) {
+            if (log.isDebugEnabled()) {
+                log.debug("not leader of group {}, skip method={}", group, method.getName());
+            }
+            return Defaults.defaultValue(method.getReturnType());
+        }
+
+        return invocation.proceed();
+    }
+
+
+    /**
+     * 解析方法上{@link ClusterSingleton}注解的分组名称
+     */
+    private String determineGroup(Method method, Object target) {
+        Method specificMethod = target != null
+                ? AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(target))
+                : method;
+        ClusterSingleton singleton = AnnotatedElementUtils.findMergedAnnotation(specificMethod, ClusterSingleton.class);
+        return singleton != null ? singleton.value() : DEFAULT_GROUP;
+    }
+
+}
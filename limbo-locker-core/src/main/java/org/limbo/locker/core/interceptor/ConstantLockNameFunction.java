@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.reflect.Method;
+
+/**
+ * 固定锁名称函数，锁名在解析执行计划时已计算完成，执行时不会产生任何对象分配。
+ *
+ * @param <N> 锁名称类型，单锁为String，联锁为String[]
+ * @author Brozen
+ * @since 1.0
+ */
+@Getter
+@ToString
+public final class ConstantLockNameFunction<N> implements LockNameFunction<N> {
+
+    /**
+     * 计算完成的锁名称
+     */
+    private final N name;
+
+    public ConstantLockNameFunction(N name) {
+        this.name = name;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param method 执行的方法
+     * @param targetClass 执行方法所在类
+     * @param args 方法执行参数
+     * @return
+     */
+    @Override
+    public N apply(Method method, Class<?> targetClass, Object[] args) {
+        return name;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.apache.commons.lang3.mutable.MutableInt;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 当前线程通过切面持有的锁登记表。嵌套调用再次申请已持有的锁时，只需增加本地计数，无需访问Redis；
+ * 最外层调用结束时计数归零，由最外层释放分布式锁。<br/>
+ *
+ * 登记按作用域隔离，作用域由加锁模板及锁类型组成，参考{@link #scopeOf(Object, Object)}。
+ * 同名的锁通过不同模板或不同类型持有时，不视为重入，嵌套调用仍需加锁。<br/>
+ *
+ * 计数归零时保留登记，计数置0即视为未持有，同名锁再次加锁时复用，常量锁名的调用不会产生对象分配；
+ * 每个作用域最多保留{@link #MAX_IDLE_ENTRIES}个计数为0的登记，超过时才移除，防止动态锁名无限增长。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+final class HeldLockRegistry {
+
+    /**
+     * 当前线程持有的锁，按作用域、锁名称两级记录重入次数
+     */
+    private static final ThreadLocal<Map<Object, Map<String, MutableInt>>> HELD_LOCKS = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * 每个作用域最多保留的计数为0的登记数量
+     */
+    static final int MAX_IDLE_ENTRIES = 64;
+
+    private HeldLockRegistry() {
+    }
+
+
+    /**
+     * 生成登记作用域
+     * @param template 加锁模板，按实例区分
+     * @param kind 锁类型或加锁模式
+     */
+    static Object scopeOf(Object template, Object kind) {
+        return new Scope(template, kind);
+    }
+
+
+    /**
+     * 当前线程是否已持有锁
+     * @param scope 登记作用域
+     * @param lockName 锁名称
+     */
+    static boolean isHeld(Object scope, String lockName) {
+        Map<String, MutableInt> heldLocks = HELD_LOCKS.get().get(scope);
+        return heldLocks != null && isHeld(heldLocks.get(lockName));
+    }
+
+
+    /**
+     * 当前线程是否已持有全部锁
+     * @param scope 登记作用域
+     * @param lockNames 锁名称
+     */
+    static boolean isHeld(Object scope, String[] lockNames) {
+        Map<String, MutableInt> heldLocks = HELD_LOCKS.get().get(scope);
+        if (heldLocks == null) {
+            return false;
+        }
+
+        for (String lockName : lockNames) {
+            if (!isHeld(heldLocks.get(lockName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * 登记的重入次数是否大于0
+     */
+    private static boolean isHeld(MutableInt count) {
+        return count != null && count.intValue() > 0;
+    }
+
+
+    /**
+     * 登记持有锁，已持有时增加重入次数
+     * @param scope 登记作用域
+     * @param lockName 锁名称
+     */
+    static void hold(Object scope, String lockName) {
+        HELD_LOCKS.get().computeIfAbsent(scope, _s -> new HashMap<>())
+                .computeIfAbsent(lockName, _k -> new MutableInt()).increment();
+    }
+
+
+    /**
+     * 登记持有全部锁
+     * @param scope 登记作用域
+     * @param lockNames 锁名称
+     */
+    static void hold(Object scope, String[] lockNames) {
+        for (String lockName : lockNames) {
+            hold(scope, lockName);
+        }
+    }
+
+
+    /**
+     * 减少重入次数，归零时保留登记供再次加锁复用，作用域内登记过多时才移除
+     * @param scope 登记作用域
+     * @param lockName 锁名称
+     */
+    static void unhold(Object scope, String lockName) {
+        Map<String, MutableInt> heldLocks = HELD_LOCKS.get().get(scope);
+        if (heldLocks == null) {
+            return;
+        }
+
+        MutableInt count = heldLocks.get(lockName);
+        if (count != null && count.decrementAndGet() <= 0) {
+            count.setValue(0);
+            if (heldLocks.size() > MAX_IDLE_ENTRIES) {
+                heldLocks.remove(lockName);
+            }
+        }
+    }
+
+
+    /**
+     * 减少全部锁的重入次数
+     * @param scope 登记作用域
+     * @param lockNames 锁名称
+     */
+    static void unhold(Object scope, String[] lockNames) {
+        for (String lockName : lockNames) {
+            unhold(scope, lockName);
+        }
+    }
+
+
+    /**
+     * 登记作用域，加锁模板按实例判等，加锁模板可能重写equals；哈希值预先计算，查找时不产生对象分配
+     */
+    private static final class Scope {
+
+        private final Object template;
+
+        private final Object kind;
+
+        private final int hash;
+
+        Scope(Object template, Object kind) {
+            this.template = template;
+            this.kind = kind;
+            this.hash = 31 * System.identityHashCode(template) + Objects.hashCode(kind);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Scope)) {
+                return false;
+            }
+            Scope other = (Scope) o;
+            return other.template == template && Objects.equals(other.kind, kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -19,21 +19,39 @@ package org.limbo.locker.core.interceptor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.limbo.locker.core.LockEachResult;
+import org.limbo.locker.core.LockException;
+import org.limbo.locker.core.LockStripes;
 import org.limbo.locker.core.LockTemplate;
 import org.limbo.locker.core.MultiLockTemplate;
+import org.limbo.locker.core.RedLockLease;
+import org.limbo.locker.core.RedLockTemplate;
+import org.limbo.locker.core.annotations.MultiLockMode;
 import org.limbo.locker.core.attribute.LockAttribute;
 import org.limbo.locker.core.attribute.LockAttributeSource;
 import org.limbo.locker.core.attribute.LockDefinition;
-import org.limbo.locker.core.evaluation.NameEvaluateResult;
+import org.limbo.locker.core.attribute.MultiLockAttributes;
+import org.limbo.locker.core.attribute.SingleLockAttributes;
+import org.limbo.locker.core.evaluation.AbstractNameEvaluator;
 import org.limbo.locker.core.evaluation.NameEvaluationContext;
 import org.limbo.locker.core.evaluation.NameEvaluationContextFactory;
 import org.limbo.locker.core.evaluation.NameEvaluator;
+import org.redisson.api.RLock;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -91,6 +109,58 @@ public abstract class LockAspectSupport implements BeanFactoryAware {
     @Setter
     private MultiLockTemplate multiLockTemplate;
 
+    /**
+     * Redlock加锁模板，未配置时不支持Redlock加锁
+     */
+    @Getter
+    @Setter
+    private RedLockTemplate redLockTemplate;
+
+    /**
+     * 是否开启本地重入。开启后，嵌套调用申请当前线程已通过切面持有的锁时，只增加本地计数，不访问Redis，由最外层调用释放锁。
+     * 需注意本地重入不会刷新锁的持有时间。默认开启。
+     */
+    @Getter
+    @Setter
+    private boolean localReentrant = true;
+
+
+    /**
+     * 缓存下来的加锁执行计划，按方法、目标类两级缓存，查找时无需生成组合key
+     */
+    private final Map<Method, Map<Class<?>, LockOperation<?>>> operationCache = new ConcurrentHashMap<>(1024);
+
+    /**
+     * 本地单飞中的调用，key为方法及分段前的锁名称，value为第一个调用者的执行结果
+     */
+    private final Map<List<Object>, CompletableFuture<Object>> singleFlights = new ConcurrentHashMap<>();
+
+    /**
+     * 分布式单飞的结果中转，首次使用时创建
+     */
+    private volatile SharedResultBroker sharedResultBroker;
+
+    /**
+     * 无需加锁的执行计划，防止Map不支持null value
+     */
+    private static final LockOperation<?> NULL_OPERATION = new LockOperation<Object>() {
+        @Override
+        Object invoke(Method method, Class<?> targetClass, Object[] args, LockInvocation invocation) throws Throwable {
+            return invocation.proceed();
+        }
+
+        @Override
+        Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                            LockInvocation invocation, Object lockName) throws Throwable {
+            return invocation.proceed();
+        }
+
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
 
     /**
      * 加锁，并执行回调函数。
@@ -101,95 +171,734 @@ public abstract class LockAspectSupport implements BeanFactoryAware {
      * @return 切面拦截的方法执行结果
      */
     protected Object invokeInLock(Method method, Class<?> targetClass, Object[] args, LockInvocation invocation) throws Throwable {
-        LockAttributeSource las = getLockAttributeSource();
-        LockAttribute lockAttr = las == null ? null : las.getLockAttribute(method, targetClass);
+        return getLockOperation(method, targetClass).invoke(method, targetClass, args, invocation);
+    }
 
-        // 没有加锁配置，说明无需加锁，直接执行方法
-        if (lockAttr == null) {
-            return invocation.proceed();
+
+    /**
+     * 获取方法的加锁执行计划，每个（方法，目标类）只会解析一次。没有加锁配置的方法，执行计划会直接执行方法。
+     * @param method 切面拦截的执行方法
+     * @param targetClass 切面拦截的执行方法所在类
+     * @return 加锁执行计划
+     */
+    protected LockOperation<?> getLockOperation(Method method, Class<?> targetClass) {
+        // 静态方法的targetClass可能为null，使用方法声明类作为缓存key
+        Class<?> classKey = targetClass == null ? method.getDeclaringClass() : targetClass;
+
+        // 先直接读取，命中时不产生对象分配
+        Map<Class<?>, LockOperation<?>> classOperations = operationCache.get(method);
+        if (classOperations == null) {
+            classOperations = operationCache.computeIfAbsent(method, _m -> new ConcurrentHashMap<>(4));
+        }
+
+        LockOperation<?> operation = classOperations.get(classKey);
+        if (operation != null) {
+            return operation;
         }
 
-        // 计算锁名称
+        return classOperations.computeIfAbsent(classKey, _k -> {
+            LockAttributeSource las = getLockAttributeSource();
+            LockAttribute lockAttr = las == null ? null : las.getLockAttribute(method, targetClass);
+
+            // 没有加锁配置，说明无需加锁，直接执行方法
+            LockOperation<?> op = lockAttr == null ? NULL_OPERATION : computeLockOperation(method, targetClass, lockAttr);
+
+            if (log.isTraceEnabled()) {
+                String methodIdentification = ClassUtils.getQualifiedMethodName(method, targetClass);
+                log.trace("Adding lock operation on '" + methodIdentification + "': " + op);
+            }
+
+            return op;
+        });
+    }
+
+
+    /**
+     * 根据加锁配置解析加锁执行计划。此方法无需处理缓存
+     * @param method 切面拦截的执行方法
+     * @param targetClass 切面拦截的执行方法所在类
+     * @param lockAttr 加锁配置
+     * @return 加锁执行计划
+     */
+    protected LockOperation<?> computeLockOperation(Method method, Class<?> targetClass, LockAttribute lockAttr) {
         NameEvaluator nameEvaluator = determineNameEvaluator(lockAttr);
-        NameEvaluationContext context = nameEvaluationContextFactory
-                .createNameEvaluationContext(method, targetClass, args, lockAttr);
-        NameEvaluateResult nameEvaluateResult = nameEvaluator.evaluate(context);
+        checkEvaluatorSupport(method, targetClass, lockAttr, nameEvaluator);
 
-        // 根据加锁类型，调用不同的模板加锁
+        // 根据加锁类型，生成不同的执行计划
         int lockType = lockAttr.getLockType();
         if (lockType == LockDefinition.LOCK_TYPE_SINGLE) {
 
-            // 单锁计算结果直接返回锁名称
-            return invokeInSingleLock(method, invocation, lockAttr, ((String) nameEvaluateResult.getEvaluatedName()));
+            LockNameFunction<String> nameFunction = determineNameFunction(method, targetClass, lockAttr, nameEvaluator, String.class);
+            if (lockAttr instanceof SingleLockAttributes && ((SingleLockAttributes) lockAttr).isRedlock()) {
+                if (getRedLockTemplate() == null) {
+                    throw new IllegalStateException("RedLockTemplate未配置，无法使用Redlock加锁 method="
+                            + ClassUtils.getQualifiedMethodName(method, targetClass));
+                }
+                return new RedLockOperation(lockAttr, nameEvaluator, getRedLockTemplate(),
+                        stripeNameFunction(nameFunction, lockAttr.getStripes()),
+                        determineConditionFunction(lockAttr, lockAttr.getCondition(), nameEvaluator),
+                        determineConditionFunction(lockAttr, lockAttr.getSkipIf(), nameEvaluator));
+            }
+            return new SingleLockOperation(method, lockAttr, nameEvaluator, getLockTemplate(), nameFunction,
+                    determineConditionFunction(lockAttr, lockAttr.getCondition(), nameEvaluator),
+                    determineConditionFunction(lockAttr, lockAttr.getSkipIf(), nameEvaluator),
+                    determinePriorityFunction(lockAttr, nameEvaluator));
 
         } else if (lockType == LockDefinition.LOCK_TYPE_MULTI) {
 
-            // 联锁计算结果返回锁名称数组
-            return invokeInMultiLock(method, invocation, lockAttr, ((String[]) nameEvaluateResult.getEvaluatedName()));
+            LockNameFunction<String[]> nameFunction = determineNameFunction(method, targetClass, lockAttr, nameEvaluator, String[].class);
+            if (lockAttr instanceof MultiLockAttributes && ((MultiLockAttributes) lockAttr).getMode() == MultiLockMode.ANY) {
+                return new AnyLockOperation(lockAttr, nameEvaluator, getMultiLockTemplate(),
+                        stripeMultiNameFunction(nameFunction, lockAttr.getStripes()),
+                        determineConditionFunction(lockAttr, lockAttr.getCondition(), nameEvaluator),
+                        determineConditionFunction(lockAttr, lockAttr.getSkipIf(), nameEvaluator));
+            }
+            return new MultiLockOperation(lockAttr, nameEvaluator, getMultiLockTemplate(),
+                    stripeMultiNameFunction(nameFunction, lockAttr.getStripes()),
+                    determineConditionFunction(lockAttr, lockAttr.getCondition(), nameEvaluator),
+                    determineConditionFunction(lockAttr, lockAttr.getSkipIf(), nameEvaluator));
 
         } else {
 
             // 异常的加锁类型，给出警告日志，当成无锁处理
             String methodName = ClassUtils.getQualifiedMethodName(method, targetClass);
             log.warn("lock type error, cannot identify type {} on {}", lockType, methodName);
-            return invocation.proceed();
+            return NULL_OPERATION;
+
+        }
+    }
+
+
+    /**
+     * 检查锁名计算器是否支持加锁配置中的条件表达式、优先级表达式，不支持时在解析执行计划时直接失败，而不是在方法执行时失败
+     * @throws LockException 锁名计算器未实现配置中用到的表达式计算
+     */
+    private void checkEvaluatorSupport(Method method, Class<?> targetClass, LockAttribute lockAttr, NameEvaluator nameEvaluator) {
+        if (nameEvaluator == null) {
+            return;
+        }
 
+        boolean conditional = StringUtils.isNotBlank(lockAttr.getCondition()) || StringUtils.isNotBlank(lockAttr.getSkipIf());
+        if (conditional && !isImplemented(nameEvaluator, "evaluateCondition")) {
+            throw new LockException("锁名计算器" + nameEvaluator.getClass().getName() + "不支持条件表达式，condition及skipIf不可用 method="
+                    + ClassUtils.getQualifiedMethodName(method, targetClass));
         }
 
+        boolean prioritized = lockAttr instanceof SingleLockAttributes
+                && StringUtils.isNotBlank(((SingleLockAttributes) lockAttr).getPriorityExpression());
+        if (prioritized && !isImplemented(nameEvaluator, "evaluatePriority")) {
+            throw new LockException("锁名计算器" + nameEvaluator.getClass().getName() + "不支持优先级表达式，priorityExpression不可用 method="
+                    + ClassUtils.getQualifiedMethodName(method, targetClass));
+        }
     }
 
 
     /**
-     * 在联锁中执行方法
-     * @param method 待执行的方法
-     * @param invocation 方法执行回调
+     * 锁名计算器是否实现了表达式计算方法，未实现时使用{@link NameEvaluator}的默认实现，调用会抛出异常
+     * @param nameEvaluator 锁名计算器
+     * @param methodName 表达式计算方法名称
+     */
+    private boolean isImplemented(NameEvaluator nameEvaluator, String methodName) {
+        try {
+            Method evaluate = nameEvaluator.getClass().getMethod(methodName, NameEvaluationContext.class, String.class);
+            return evaluate.getDeclaringClass() != NameEvaluator.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * 生成锁名称函数。指定了固定锁名时，锁名只计算一次；否则每次执行时通过锁名计算器计算。
+     * @param method 切面拦截的执行方法
+     * @param targetClass 切面拦截的执行方法所在类
      * @param lockAttr 加锁配置
-     * @param lockNames 锁名称
-     * @return 方法执行结果
+     * @param nameEvaluator 锁名计算器
+     * @param nameType 锁名称类型
+     * @return 锁名称函数
+     */
+    protected <N> LockNameFunction<N> determineNameFunction(Method method, Class<?> targetClass, LockAttribute lockAttr,
+                                                            NameEvaluator nameEvaluator, Class<N> nameType) {
+        // AbstractNameEvaluator 对固定锁名不做任何计算，可以提前计算出锁名
+        if (nameEvaluator instanceof AbstractNameEvaluator && isConstantName(lockAttr)) {
+            NameEvaluationContext context = nameEvaluationContextFactory
+                    .createNameEvaluationContext(method, targetClass, new Object[0], lockAttr);
+            return new ConstantLockNameFunction<>(nameType.cast(nameEvaluator.evaluate(context).getEvaluatedName()));
+        }
+
+        return (m, c, args) -> {
+            NameEvaluationContext context = nameEvaluationContextFactory
+                    .createNameEvaluationContext(m, c, args, lockAttr);
+            return nameType.cast(nameEvaluator.evaluate(context).getEvaluatedName());
+        };
+    }
+
+
+    /**
+     * 生成条件函数，条件表达式通过锁名计算器计算。
+     * @param lockAttr 加锁配置
+     * @param expression 条件表达式
+     * @param nameEvaluator 锁名计算器
+     * @return 条件函数，未配置条件表达式时返回null
+     */
+    protected LockConditionFunction determineConditionFunction(LockAttribute lockAttr, String expression,
+                                                               NameEvaluator nameEvaluator) {
+        if (StringUtils.isBlank(expression)) {
+            return null;
+        }
+
+        return (m, c, args) -> {
+            NameEvaluationContext context = nameEvaluationContextFactory
+                    .createNameEvaluationContext(m, c, args, lockAttr);
+            return nameEvaluator.evaluateCondition(context, expression);
+        };
+    }
+
+
+    /**
+     * 生成优先级函数。指定了优先级表达式时，每次执行通过锁名计算器计算；否则使用固定优先级。
+     * @param lockAttr 加锁配置
+     * @param nameEvaluator 锁名计算器
+     * @return 优先级函数，未配置优先级时返回null，不按优先级排队
+     */
+    protected LockPriorityFunction determinePriorityFunction(LockAttribute lockAttr, NameEvaluator nameEvaluator) {
+        if (!(lockAttr instanceof SingleLockAttributes)) {
+            return null;
+        }
+
+        SingleLockAttributes sla = (SingleLockAttributes) lockAttr;
+        String expression = sla.getPriorityExpression();
+        if (StringUtils.isNotBlank(expression)) {
+            return (m, c, args) -> {
+                NameEvaluationContext context = nameEvaluationContextFactory
+                        .createNameEvaluationContext(m, c, args, lockAttr);
+                return nameEvaluator.evaluatePriority(context, expression);
+            };
+        }
+
+        int priority = sla.getPriority();
+        return priority == 0 ? null : (m, c, args) -> priority;
+    }
+
+
+    /**
+     * 为单锁名称函数增加锁分段处理
+     * @param nameFunction 锁名称函数
+     * @param stripes 分段数量，小于等于0时不分段
+     * @return 分段锁名称函数
+     */
+    private LockNameFunction<String> stripeNameFunction(LockNameFunction<String> nameFunction, int stripes) {
+        if (stripes <= 0) {
+            return nameFunction;
+        }
+
+        if (nameFunction instanceof ConstantLockNameFunction) {
+            String name = ((ConstantLockNameFunction<String>) nameFunction).getName();
+            return new ConstantLockNameFunction<>(LockStripes.stripe(name, stripes));
+        }
+        return (m, c, args) -> LockStripes.stripe(nameFunction.apply(m, c, args), stripes);
+    }
+
+
+    /**
+     * 为联锁名称函数增加锁分段处理，落在同一分段的锁名会被合并
+     * @param nameFunction 锁名称函数
+     * @param stripes 分段数量，小于等于0时不分段
+     * @return 分段锁名称函数
      */
-    private Object invokeInMultiLock(Method method, LockInvocation invocation, LockAttribute lockAttr, String[] lockNames) {
-        MultiLockTemplate lockTemplate = getMultiLockTemplate();
-        return lockTemplate.invokeInMultiLock(lockNames,
-                () -> {
-                    if (log.isTraceEnabled()) {
-                        log.info("lock acquired lock={}", StringUtils.join(lockNames, ","));
+    private LockNameFunction<String[]> stripeMultiNameFunction(LockNameFunction<String[]> nameFunction, int stripes) {
+        if (stripes <= 0) {
+            return nameFunction;
+        }
+
+        if (nameFunction instanceof ConstantLockNameFunction) {
+            String[] names = ((ConstantLockNameFunction<String[]>) nameFunction).getName();
+            return new ConstantLockNameFunction<>(LockStripes.stripe(names, stripes));
+        }
+        return (m, c, args) -> LockStripes.stripe(nameFunction.apply(m, c, args), stripes);
+    }
+
+
+    /**
+     * 加锁配置是否指定了固定锁名
+     */
+    private boolean isConstantName(LockAttribute lockAttr) {
+        if (lockAttr instanceof SingleLockAttributes) {
+            return StringUtils.isNotBlank(((SingleLockAttributes) lockAttr).getLockName());
+        } else if (lockAttr instanceof MultiLockAttributes) {
+            return CollectionUtils.isNotEmpty(((MultiLockAttributes) lockAttr).getLockNames());
+        }
+        return false;
+    }
+
+
+    /**
+     * 单锁执行计划。锁名称函数返回分段前的锁名称，单飞按分段前的锁名称合并调用，加锁时再计算分段锁名称
+     */
+    private class SingleLockOperation extends LockOperation<String> {
+
+        /**
+         * 锁分段数量，小于等于0时不分段
+         */
+        private final int stripes;
+
+        /**
+         * 固定锁名时，提前获取的锁，执行时无需重复生成
+         */
+        private final RLock constantLock;
+
+        /**
+         * 是否开启本地单飞
+         */
+        private final boolean singleFlight;
+
+        /**
+         * 分布式单飞的结果共享有效期，单位毫秒，小于等于0时不开启
+         */
+        private final long sharedResultTtl;
+
+        /**
+         * 分布式单飞的结果key前缀，由方法签名生成，结果key为前缀加分段前的锁名称
+         */
+        private final String resultKeyPrefix;
+
+        /**
+         * 优先级函数，为null时不按优先级排队
+         */
+        private final LockPriorityFunction priority;
+
+        /**
+         * 本地重入登记作用域
+         */
+        private final Object heldScope;
+
+        SingleLockOperation(Method method, LockAttribute lockAttribute, NameEvaluator nameEvaluator,
+                            LockTemplate lockTemplate, LockNameFunction<String> nameFunction,
+                            LockConditionFunction condition, LockConditionFunction skipIf,
+                            LockPriorityFunction priority) {
+            super(lockAttribute, nameEvaluator, lockTemplate, nameFunction, condition, skipIf);
+            this.priority = priority;
+            this.stripes = lockAttribute.getStripes();
+            this.heldScope = HeldLockRegistry.scopeOf(lockTemplate, lockAttribute.getLockKind());
+            this.singleFlight = lockAttribute instanceof SingleLockAttributes
+                    && ((SingleLockAttributes) lockAttribute).isSingleFlight();
+            this.sharedResultTtl = lockAttribute instanceof SingleLockAttributes
+                    && ((SingleLockAttributes) lockAttribute).getSharedResultTtl() != null
+                    ? ((SingleLockAttributes) lockAttribute).getSharedResultTtl().toMillis()
+                    : 0;
+            this.resultKeyPrefix = methodSignature(method) + ":";
+            this.constantLock = nameFunction instanceof ConstantLockNameFunction
+                    ? lockTemplate.getLock(LockStripes.stripe(((ConstantLockNameFunction<String>) nameFunction).getName(), stripes),
+                            lockAttribute.getLockKind())
+                    : null;
+        }
+
+        /**
+         * 在单锁中执行方法
+         * @param name 分段前的锁名称
+         */
+        @Override
+        Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                            LockInvocation invocation, String name) throws Throwable {
+            String lockName = LockStripes.stripe(name, stripes);
+            boolean held = HeldLockRegistry.isHeld(heldScope, lockName);
+
+            // 当前线程已持有锁，本地重入
+            if (localReentrant && held) {
+                return invokeReentrant(method, invocation, heldScope, lockName);
+            }
+
+            Integer lockPriority = priority == null ? null : priority.apply(method, targetClass, args);
+
+            // 本地单飞，当前线程已持有锁时不参与，防止等待自己
+            if (singleFlight && !held) {
+                return invokeSingleFlight(method, invocation, name, lockName, lockPriority);
+            }
+
+            return invokeLeading(method, invocation, name, lockName, lockPriority);
+        }
+
+        /**
+         * 作为本节点的执行者加锁执行方法，开启了分布式单飞时，优先使用其他节点共享的执行结果
+         */
+        private Object invokeLeading(Method method, LockInvocation invocation, String name, String lockName,
+                                     Integer lockPriority) throws Throwable {
+            return sharedResultTtl > 0
+                    ? invokeSharedResult(method, invocation, resultKeyPrefix + name, lockName, lockPriority)
+                    : invokeLocked(method, invocation, lockName, lockPriority);
+        }
+
+        /**
+         * 按指定的等待时间加锁，指定了优先级时按优先级排队
+         * @param waitTime 加锁等待时间，单位毫秒
+         */
+        private boolean tryLock(LockTemplate lockTemplate, RLock lock, Integer lockPriority, long waitTime) {
+            return lockPriority == null
+                    ? lockTemplate.tryLock(lock, getRetryTimes(), waitTime, getHoldTime(), TimeUnit.MILLISECONDS)
+                    : lockTemplate.tryLock(lock, getRetryTimes(), waitTime, getHoldTime(), TimeUnit.MILLISECONDS, lockPriority);
+        }
+
+        /**
+         * 分布式单飞。锁被其他节点持有时，等待持有者共享执行结果，超时或持有者未共享结果时，再按配置加锁执行；
+         * 加锁执行成功后，将结果共享给其他节点的等待者。等待结果及加锁的总时长不超过加锁等待时间。<br/>
+         * 只使用本次调用开始等待后才发布的结果（收到了结果通知），执行结束后的新调用不会读取之前共享的结果，会加锁执行。
+         * @param resultKey 结果key，由方法签名及分段前的锁名称组成
+         * @param lockName 分段后的锁名称
+         */
+        private Object invokeSharedResult(Method method, LockInvocation invocation, String resultKey, String lockName,
+                                          Integer lockPriority) throws Throwable {
+            long startAt = System.nanoTime();
+            SharedResultBroker broker = getSharedResultBroker();
+            SharedResultBroker.Watch watch = broker.watch(resultKey);
+            try {
+                SharedResult shared;
+                LockTemplate lockTemplate = getLockTemplate();
+                RLock lock = constantLock != null ? constantLock : lockTemplate.getLock(lockName, getLockAttribute().getLockKind());
+                if (!lockTemplate.tryLock(lock, 1, 0, getHoldTime(), TimeUnit.MILLISECONDS)) {
+                    // 锁被其他节点持有，等待持有者共享结果，最多等待锁的持有时间，且不超过加锁等待时间
+                    long resultWaitTime = getHoldTime() > 0 ? Math.min(getHoldTime(), getWaitTime()) : getWaitTime();
+                    if (resultWaitTime > 0) {
+                        try {
+                            watch.notified.get(resultWaitTime, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException e) {
+                            log.debug("shared result wait timeout lock={}", lockName);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return whenLockFailed(e, lockName, method);
+                        }
+                    }
+
+                    shared = watch.notified.isDone() ? broker.get(resultKey) : null;
+                    if (shared != null) {
+                        return shared.getValue();
                     }
 
-                    return invocation.proceed();
-                },
-                (lock, throwable) -> whenLockFailed(throwable, StringUtils.join(lockNames, ","), method),
-                lockAttr.getRetryTimes(),
-                lockAttr.getWaitTime().toMillis(),
-                lockAttr.getHoldTime().toMillis(),
-                TimeUnit.MILLISECONDS
-        );
+                    long remainWaitTime = getWaitTime() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startAt);
+                    if (!tryLock(lockTemplate, lock, lockPriority, Math.max(remainWaitTime, 0))) {
+                        return whenLockFailed(new LockException("申请锁超时"), lockName, method);
+                    }
+                }
+
+                // 加锁成功，等待期间收到了结果通知时再次检查结果，持有者会在释放锁之前共享结果
+                try {
+                    HeldLockRegistry.hold(heldScope, lockName);
+                    shared = watch.notified.isDone() ? broker.get(resultKey) : null;
+                    if (shared != null) {
+                        return shared.getValue();
+                    }
+
+                    Object result = invocation.proceed();
+                    broker.publish(resultKey, result, sharedResultTtl);
+                    return result;
+                } catch (Throwable t) {
+                    return whenLockFailed(t, lockName, method);
+                } finally {
+                    HeldLockRegistry.unhold(heldScope, lockName);
+                    lockTemplate.release(lock);
+                }
+            } finally {
+                broker.unwatch(resultKey, watch);
+            }
+        }
+
+        /**
+         * 本节点同一方法、同名锁只由第一个调用者加锁执行，并发的其他调用者等待并共享执行结果或异常，不访问Redis。
+         * 按分段前的锁名称合并调用，落在同一分段的不同锁名不会共享结果
+         */
+        private Object invokeSingleFlight(Method method, LockInvocation invocation, String name, String lockName,
+                                          Integer lockPriority) throws Throwable {
+            List<Object> flightKey = Arrays.asList(method, name);
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> leaderFlight = singleFlights.putIfAbsent(flightKey, flight);
+
+            // 已有调用者在执行，等待结果
+            if (leaderFlight != null) {
+                try {
+                    return leaderFlight.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return whenLockFailed(e, lockName, method);
+                }
+            }
+
+            try {
+                Object result = invokeLeading(method, invocation, name, lockName, lockPriority);
+                flight.complete(result);
+                return result;
+            } catch (Throwable t) {
+                flight.completeExceptionally(t);
+                throw t;
+            } finally {
+                singleFlights.remove(flightKey, flight);
+            }
+        }
+
+        /**
+         * 加锁执行方法，直接使用模板加解锁，不生成回调函数
+         */
+        private Object invokeLocked(Method method, LockInvocation invocation, String lockName, Integer lockPriority) {
+            LockTemplate lockTemplate = getLockTemplate();
+            RLock lock = constantLock != null ? constantLock : lockTemplate.getLock(lockName, getLockAttribute().getLockKind());
+            if (!tryLock(lockTemplate, lock, lockPriority, getWaitTime())) {
+                // 加锁失败 failed
+                return whenLockFailed(new LockException("申请锁超时"), lockName, method);
+            }
+
+            // 加锁成功，success
+            try {
+                if (log.isTraceEnabled()) {
+                    log.info("lock acquired lock={}", lockName);
+                }
+
+                HeldLockRegistry.hold(heldScope, lockName);
+                return invocation.proceed();
+            } catch (Throwable t) {
+                return whenLockFailed(t, lockName, method);
+            } finally {
+                HeldLockRegistry.unhold(heldScope, lockName);
+                lockTemplate.release(lock);
+            }
+        }
+    }
+
+
+    /**
+     * Redlock执行计划，在多个独立Redis节点上加锁后执行方法
+     */
+    private class RedLockOperation extends LockOperation<String> {
+
+        /**
+         * Redlock加锁模板
+         */
+        private final RedLockTemplate redLockTemplate;
+
+        /**
+         * 本地重入登记作用域
+         */
+        private final Object heldScope;
+
+        RedLockOperation(LockAttribute lockAttribute, NameEvaluator nameEvaluator,
+                         RedLockTemplate redLockTemplate, LockNameFunction<String> nameFunction,
+                         LockConditionFunction condition, LockConditionFunction skipIf) {
+            super(lockAttribute, nameEvaluator, null, nameFunction, condition, skipIf);
+            this.redLockTemplate = redLockTemplate;
+            this.heldScope = HeldLockRegistry.scopeOf(redLockTemplate, RedLockTemplate.class);
+        }
+
+        /**
+         * 在Redlock中执行方法，加锁在等待时间内自动重试，不使用retryTimes
+         */
+        @Override
+        Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                            LockInvocation invocation, String lockName) throws Throwable {
+            // 当前线程已持有锁，本地重入
+            if (localReentrant && HeldLockRegistry.isHeld(heldScope, lockName)) {
+                return invokeReentrant(method, invocation, heldScope, lockName);
+            }
+
+            RedLockLease lease = redLockTemplate.tryLock(lockName, getWaitTime(), getHoldTime(), TimeUnit.MILLISECONDS);
+            if (lease == null) {
+                return whenLockFailed(new LockException("申请锁超时"), lockName, method);
+            }
+
+            try {
+                HeldLockRegistry.hold(heldScope, lockName);
+                return invocation.proceed();
+            } catch (Throwable t) {
+                return whenLockFailed(t, lockName, method);
+            } finally {
+                HeldLockRegistry.unhold(heldScope, lockName);
+                redLockTemplate.unlock(lease);
+            }
+        }
+    }
+
+
+    /**
+     * 联锁执行计划
+     */
+    private class MultiLockOperation extends LockOperation<String[]> {
+
+        /**
+         * 本地重入登记作用域，与同模板同类型的单锁一致，联锁中的每个锁与单锁是同一把锁
+         */
+        private final Object heldScope;
+
+        MultiLockOperation(LockAttribute lockAttribute, NameEvaluator nameEvaluator,
+                           MultiLockTemplate lockTemplate, LockNameFunction<String[]> nameFunction,
+                           LockConditionFunction condition, LockConditionFunction skipIf) {
+            super(lockAttribute, nameEvaluator, lockTemplate, nameFunction, condition, skipIf);
+            this.heldScope = HeldLockRegistry.scopeOf(lockTemplate, lockAttribute.getLockKind());
+        }
+
+        /**
+         * 在联锁中执行方法
+         */
+        @Override
+        Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                            LockInvocation invocation, String[] lockNames) throws Throwable {
+            // 表达式展开后没有任何锁名，说明无资源需要锁定，直接执行方法
+            if (lockNames.length == 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("no lock name evaluated, proceed without lock method={}", method.getName());
+                }
+                return invocation.proceed();
+            }
+
+            // 当前线程已持有全部锁，本地重入
+            if (localReentrant && HeldLockRegistry.isHeld(heldScope, lockNames)) {
+                return invokeReentrant(method, invocation, heldScope, lockNames);
+            }
+
+            MultiLockTemplate lockTemplate = (MultiLockTemplate) getLockTemplate();
+            return lockTemplate.invokeInMultiLock(lockNames, getLockAttribute().getLockKind(),
+                    () -> {
+                        if (log.isTraceEnabled()) {
+                            log.info("lock acquired lock={}", StringUtils.join(lockNames, ","));
+                        }
+
+                        HeldLockRegistry.hold(heldScope, lockNames);
+                        try {
+                            return invocation.proceed();
+                        } finally {
+                            HeldLockRegistry.unhold(heldScope, lockNames);
+                        }
+                    },
+                    (lock, throwable) -> whenLockFailed(throwable, StringUtils.join(lockNames, ","), method),
+                    getRetryTimes(),
+                    getWaitTime(),
+                    getHoldTime(),
+                    TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+
+    /**
+     * ANY模式联锁执行计划，从候选锁中获取指定数量的空闲锁后执行方法
+     */
+    private class AnyLockOperation extends LockOperation<String[]> {
+
+        /**
+         * 需要获取的锁数量
+         */
+        private final int count;
+
+        AnyLockOperation(LockAttribute lockAttribute, NameEvaluator nameEvaluator,
+                         MultiLockTemplate lockTemplate, LockNameFunction<String[]> nameFunction,
+                         LockConditionFunction condition, LockConditionFunction skipIf) {
+            super(lockAttribute, nameEvaluator, lockTemplate, nameFunction, condition, skipIf);
+            this.count = ((MultiLockAttributes) lockAttribute).getCount();
+        }
+
+        /**
+         * 获取指定数量的空闲锁，并将获取到的锁名称绑定到{@link LockContext}后执行方法
+         */
+        @Override
+        Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                            LockInvocation invocation, String[] lockNames) throws Throwable {
+            if (lockNames.length == 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("no lock name evaluated, proceed without lock method={}", method.getName());
+                }
+                return invocation.proceed();
+            }
+
+            // 批量加锁不使用看门狗，未配置持有时间时使用默认持有时间
+            long holdTime = getHoldTime() > 0 ? getHoldTime() : TimeUnit.SECONDS.toMillis(100);
+            MultiLockTemplate lockTemplate = (MultiLockTemplate) getLockTemplate();
+            LockEachResult held = lockTemplate.tryLockAny(Arrays.asList(lockNames), Math.min(count, lockNames.length),
+                    getRetryTimes(), getWaitTime(), holdTime, TimeUnit.MILLISECONDS);
+            if (held == null) {
+                return whenLockFailed(new LockException("申请锁超时"), StringUtils.join(lockNames, ","), method);
+            }
+
+            List<String> acquired = held.getAcquired();
+            String[] acquiredNames = acquired.toArray(new String[0]);
+            List<String> previous = LockContext.bind(acquired);
+            try {
+                return invocation.proceed();
+            } catch (Throwable t) {
+                return whenLockFailed(t, StringUtils.join(acquiredNames, ","), method);
+            } finally {
+                LockContext.restore(previous);
+                lockTemplate.unlockEach(held);
+            }
+        }
     }
 
 
     /**
-     * 在单锁中执行方法
+     * 获取分布式单飞的结果中转，首次获取时创建并订阅结果通知
+     */
+    private SharedResultBroker getSharedResultBroker() {
+        SharedResultBroker broker = this.sharedResultBroker;
+        if (broker == null) {
+            synchronized (this) {
+                if ((broker = this.sharedResultBroker) == null) {
+                    LockTemplate lockTemplate = getLockTemplate();
+                    broker = new SharedResultBroker(lockTemplate.getRedisson(), lockTemplate.getKeyEncoder());
+                    this.sharedResultBroker = broker;
+                }
+            }
+        }
+        return broker;
+    }
+
+
+    /**
+     * 生成方法签名，用于区分不同方法共享的执行结果，需在不同节点间保持一致
+     * @param method 方法
+     * @return 声明类.方法名(参数类型,...)
+     */
+    private static String methodSignature(Method method) {
+        StringJoiner parameters = new StringJoiner(",", "(", ")");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            parameters.add(parameterType.getName());
+        }
+        return method.getDeclaringClass().getName() + "." + method.getName() + parameters;
+    }
+
+
+    /**
+     * 当前线程已持有锁时，本地重入执行方法，不访问Redis
      * @param method 待执行的方法
      * @param invocation 方法执行回调
-     * @param lockAttr 加锁配置
+     * @param heldScope 本地重入登记作用域
      * @param lockName 锁名称
      * @return 方法执行结果
      */
-    private Object invokeInSingleLock(Method method, LockInvocation invocation, LockAttribute lockAttr, String lockName) {
-        LockTemplate lockTemplate = getLockTemplate();
-        return lockTemplate.invokeInLock(lockTemplate.getLock(lockName),
-                () -> {
-                    if (log.isTraceEnabled()) {
-                        log.info("lock acquired lock={}", lockName);
-                    }
+    private Object invokeReentrant(Method method, LockInvocation invocation, Object heldScope, String lockName) {
+        HeldLockRegistry.hold(heldScope, lockName);
+        try {
+            return invocation.proceed();
+        } catch (Throwable t) {
+            return whenLockFailed(t, lockName, method);
+        } finally {
+            HeldLockRegistry.unhold(heldScope, lockName);
+        }
+    }
+
 
-                    return invocation.proceed();
-                },
-                (lock, throwable) -> whenLockFailed(throwable, lockName, method),
-                lockAttr.getRetryTimes(),
-                lockAttr.getWaitTime().toMillis(),
-                lockAttr.getHoldTime().toMillis(),
-                TimeUnit.MILLISECONDS
-        );
+    /**
+     * 当前线程已持有全部锁时，本地重入执行方法，不访问Redis
+     * @param method 待执行的方法
+     * @param invocation 方法执行回调
+     * @param heldScope 本地重入登记作用域
+     * @param lockNames 锁名称
+     * @return 方法执行结果
+     */
+    private Object invokeReentrant(Method method, LockInvocation invocation, Object heldScope, String[] lockNames) {
+        HeldLockRegistry.hold(heldScope, lockNames);
+        try {
+            return invocation.proceed();
+        } catch (Throwable t) {
+            return whenLockFailed(t, StringUtils.join(lockNames, ","), method);
+        } finally {
+            HeldLockRegistry.unhold(heldScope, lockNames);
+        }
     }
 
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 加锁上下文，在加锁执行的方法中获取本次实际持有的锁名称。{@link org.limbo.locker.core.annotations.MultiLockMode#ANY ANY}
+ * 模式的联锁只会获取候选锁中的一部分，方法需通过此上下文得知分配到了哪些资源。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public final class LockContext {
+
+    /**
+     * 当前线程本次加锁实际持有的锁名称
+     */
+    private static final ThreadLocal<List<String>> ACQUIRED_NAMES = new ThreadLocal<>();
+
+    private LockContext() {
+    }
+
+
+    /**
+     * 获取当前方法本次加锁实际持有的锁名称，不在ANY模式的联锁中执行时返回空列表
+     */
+    public static List<String> acquiredNames() {
+        List<String> names = ACQUIRED_NAMES.get();
+        return names == null ? Collections.emptyList() : names;
+    }
+
+
+    /**
+     * 绑定当前线程持有的锁名称
+     * @param names 锁名称
+     * @return 绑定前的锁名称，方法执行结束后需通过{@link #restore(List)}恢复
+     */
+    static List<String> bind(List<String> names) {
+        List<String> previous = ACQUIRED_NAMES.get();
+        ACQUIRED_NAMES.set(Collections.unmodifiableList(names));
+        return previous;
+    }
+
+
+    /**
+     * 恢复嵌套调用外层绑定的锁名称
+     * @param previous 外层绑定的锁名称
+     */
+    static void restore(List<String> previous) {
+        if (previous == null) {
+            ACQUIRED_NAMES.remove();
+        } else {
+            ACQUIRED_NAMES.set(previous);
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * 锁名称函数，由{@link LockOperation}在解析时确定具体实现，执行时根据方法参数计算出锁名称。
+ *
+ * @param <N> 锁名称类型，单锁为String，联锁为String[]
+ * @author Brozen
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface LockNameFunction<N> {
+
+    /**
+     * 计算锁名称
+     * @param method 执行的方法
+     * @param targetClass 执行方法所在类
+     * @param args 方法执行参数
+     * @return 锁名称
+     */
+    N apply(Method method, Class<?> targetClass, Object[] args);
+
+}
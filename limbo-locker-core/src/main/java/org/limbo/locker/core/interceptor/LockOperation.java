@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import com.google.common.base.Defaults;
+import lombok.Getter;
+import lombok.ToString;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.attribute.LockAttribute;
+import org.limbo.locker.core.evaluation.NameEvaluator;
+
+import java.lang.reflect.Method;
+
+/**
+ * 加锁执行计划。每个（方法，目标类）只解析一次，解析时确定锁名计算器、加锁模板、等待及持有时间、锁名称函数，
+ * 执行时只需按计划加锁并执行方法。执行计划创建后不可变。
+ *
+ * @param <N> 锁名称类型，单锁为String，联锁为String[]
+ * @author Brozen
+ * @since 1.0
+ */
+@Getter
+@ToString
+public abstract class LockOperation<N> {
+
+    /**
+     * 加锁配置
+     */
+    private final LockAttribute lockAttribute;
+
+    /**
+     * 解析后的锁名计算器
+     */
+    private final NameEvaluator nameEvaluator;
+
+    /**
+     * 加锁模板
+     */
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 锁名称函数
+     */
+    private final LockNameFunction<N> nameFunction;
+
+    /**
+     * 加锁条件函数，为null时始终加锁
+     */
+    private final LockConditionFunction condition;
+
+    /**
+     * 跳过条件函数，为null时不检查
+     */
+    private final LockConditionFunction skipIf;
+
+    /**
+     * 加锁失败重试次数
+     */
+    private final int retryTimes;
+
+    /**
+     * 加锁等待时间，单位毫秒
+     */
+    private final long waitTime;
+
+    /**
+     * 加锁成功最大持有时间，单位毫秒
+     */
+    private final long holdTime;
+
+
+    /**
+     * 无需加锁的执行计划
+     */
+    protected LockOperation() {
+        this.lockAttribute = null;
+        this.nameEvaluator = null;
+        this.lockTemplate = null;
+        this.nameFunction = null;
+        this.condition = null;
+        this.skipIf = null;
+        this.retryTimes = 0;
+        this.waitTime = 0;
+        this.holdTime = 0;
+    }
+
+
+    protected LockOperation(LockAttribute lockAttribute, NameEvaluator nameEvaluator,
+                            LockTemplate lockTemplate, LockNameFunction<N> nameFunction,
+                            LockConditionFunction condition, LockConditionFunction skipIf) {
+        this.lockAttribute = lockAttribute;
+        this.nameEvaluator = nameEvaluator;
+        this.lockTemplate = lockTemplate;
+        this.nameFunction = nameFunction;
+        this.condition = condition;
+        this.skipIf = skipIf;
+        this.retryTimes = lockAttribute.getRetryTimes();
+        this.waitTime = lockAttribute.getWaitTime().toMillis();
+        this.holdTime = lockAttribute.getHoldTime().toMillis();
+    }
+
+
+    /**
+     * 按照执行计划加锁，并执行方法。不满足加锁条件时，不加锁直接执行；满足跳过条件时，跳过方法执行。
+     * 跳过条件在加锁前后各检查一次，加锁前满足时不会访问锁。
+     * @param method 切面拦截的执行方法
+     * @param targetClass 切面拦截的执行方法所在类
+     * @param args 切面拦截的执行方法参数
+     * @param invocation 回调函数
+     * @return 切面拦截的方法执行结果
+     */
+    Object invoke(Method method, Class<?> targetClass, Object[] args, LockAspectSupport.LockInvocation invocation) throws Throwable {
+        if (condition != null && !condition.test(method, targetClass, args)) {
+            return invocation.proceed();
+        }
+
+        if (skipIf == null) {
+            return invokeInLock(method, targetClass, args, invocation, nameFunction.apply(method, targetClass, args));
+        }
+
+        if (skipIf.test(method, targetClass, args)) {
+            return skippedResult(method);
+        }
+
+        // 加锁成功后再次检查，其他调用者可能已在持有锁期间完成了业务
+        return invokeInLock(method, targetClass, args, () -> skipIf.test(method, targetClass, args)
+                ? skippedResult(method)
+                : invocation.proceed(), nameFunction.apply(method, targetClass, args));
+    }
+
+
+    /**
+     * 跳过方法执行时的返回值，基本类型返回默认值，其他类型返回null
+     * @param method 被跳过的方法
+     * @return 方法返回值
+     */
+    private Object skippedResult(Method method) {
+        return Defaults.defaultValue(method.getReturnType());
+    }
+
+
+    /**
+     * 在锁中执行方法
+     * @param method 待执行的方法
+     * @param targetClass 待执行的方法所在类
+     * @param args 方法执行参数
+     * @param invocation 方法执行回调
+     * @param lockName 计算后的锁名称
+     * @return 方法执行结果
+     */
+    abstract Object invokeInLock(Method method, Class<?> targetClass, Object[] args,
+                                 LockAspectSupport.LockInvocation invocation, N lockName) throws Throwable;
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * 优先级函数，由{@link LockOperation}在解析时确定具体实现，执行时根据方法参数计算加锁优先级。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface LockPriorityFunction {
+
+    /**
+     * 计算优先级
+     * @param method 执行的方法
+     * @param targetClass 执行方法所在类
+     * @param args 方法执行参数
+     * @return 加锁优先级，越大越优先
+     */
+    int apply(Method method, Class<?> targetClass, Object[] args);
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 分布式单飞中，加锁执行者共享给其他节点的执行结果。包装一层以支持共享null值。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+public class SharedResult implements Serializable {
+
+    private static final long serialVersionUID = 3816024151473452817L;
+
+    /**
+     * 方法执行结果
+     */
+    private Object value;
+
+    public SharedResult(Object value) {
+        this.value = value;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.limbo.locker.core.LockKeyEncoder;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式单飞的结果中转。加锁执行者将执行结果写入Redis并发布通知，其他节点的等待者收到通知后读取结果，无需再次执行方法。<br/>
+ * 每个节点只订阅一个通知频道，消息内容为结果key。结果key由调用方生成，应区分方法及锁名称，防止不同方法的结果互相覆盖。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+class SharedResultBroker {
+
+    /**
+     * 执行结果通知频道
+     */
+    static final String RESULT_TOPIC = "limbo_locker__shared_result";
+
+    /**
+     * 执行结果key前缀
+     */
+    static final String RESULT_KEY_PREFIX = "limbo_locker__result:";
+
+    private final RedissonClient redisson;
+
+    /**
+     * 锁key编码器，可能为null
+     */
+    private final LockKeyEncoder keyEncoder;
+
+    /**
+     * 本节点正在等待的结果，key为结果key
+     */
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+
+    private final RTopic topic;
+
+
+    SharedResultBroker(RedissonClient redisson, LockKeyEncoder keyEncoder) {
+        this.redisson = redisson;
+        this.keyEncoder = keyEncoder;
+        this.topic = redisson.getTopic(RESULT_TOPIC, StringCodec.INSTANCE);
+        this.topic.addListener(String.class, (channel, resultKey) -> onPublished(resultKey));
+    }
+
+
+    /**
+     * 开始等待结果key对应的执行结果通知，需在读取结果前调用，防止错过通知；等待结束后需调用{@link #unwatch(String, Watch)}
+     * @param resultKey 结果key
+     */
+    Watch watch(String resultKey) {
+        return watches.compute(resultKey, (name, watch) -> {
+            if (watch == null) {
+                watch = new Watch();
+            }
+            watch.watchers++;
+            return watch;
+        });
+    }
+
+
+    /**
+     * 结束等待
+     * @param resultKey 结果key
+     * @param watch {@link #watch(String)}的返回值
+     */
+    void unwatch(String resultKey, Watch watch) {
+        watches.computeIfPresent(resultKey, (name, w) -> w == watch && --w.watchers <= 0 ? null : w);
+    }
+
+
+    /**
+     * 读取共享的执行结果，不存在时返回null
+     * @param resultKey 结果key
+     */
+    SharedResult get(String resultKey) {
+        return getBucket(resultKey).get();
+    }
+
+
+    /**
+     * 写入执行结果，并通知所有节点的等待者
+     * @param resultKey 结果key
+     * @param result 方法执行结果
+     * @param ttl 执行结果的有效期，单位毫秒
+     */
+    void publish(String resultKey, Object result, long ttl) {
+        try {
+            getBucket(resultKey).set(new SharedResult(result), ttl, TimeUnit.MILLISECONDS);
+            topic.publishAsync(resultKey);
+        } catch (Exception e) {
+            // 共享失败不影响执行者，等待者会自行加锁执行
+            log.warn("[redisson.locker] 共享执行结果失败 key={}", resultKey, e);
+        }
+    }
+
+
+    /**
+     * 收到执行结果通知
+     */
+    private void onPublished(String resultKey) {
+        Watch watch = watches.remove(resultKey);
+        if (watch != null) {
+            watch.notified.complete(null);
+        }
+    }
+
+
+    private RBucket<SharedResult> getBucket(String resultKey) {
+        String key = RESULT_KEY_PREFIX + resultKey;
+        return redisson.getBucket(keyEncoder == null ? key : keyEncoder.encode(key));
+    }
+
+
+    /**
+     * 本节点对某个锁名称的结果等待
+     */
+    static class Watch {
+
+        /**
+         * 收到执行结果通知时完成
+         */
+        final CompletableFuture<Void> notified = new CompletableFuture<>();
+
+        /**
+         * 等待者数量，由{@link ConcurrentHashMap#compute}保护
+         */
+        int watchers;
+
+    }
+
+}
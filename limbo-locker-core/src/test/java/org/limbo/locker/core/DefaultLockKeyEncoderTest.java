@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class DefaultLockKeyEncoderTest {
+
+    private final DefaultLockKeyEncoder encoder = new DefaultLockKeyEncoder("app", 32, 100);
+
+    @Test
+    void shortNameKeepsName() {
+        assertEquals("app:order:1", encoder.encode("order:1"));
+        assertEquals("order:1", encoder.decode("app:order:1"));
+    }
+
+    @Test
+    void longNameIsDigested() {
+        String name = "order:" + StringUtils.repeat('x', 64);
+        String key = encoder.encode(name);
+
+        assertTrue(key.startsWith("app:#"));
+        assertEquals(name, encoder.decode(key));
+    }
+
+    @Test
+    void digestKeepsHashTag() {
+        String name = "order:{user:42}:" + StringUtils.repeat('x', 64);
+        String key = encoder.encode(name);
+
+        assertTrue(key.startsWith("app:{user:42}#"), key);
+        assertEquals(name, encoder.decode(key));
+        assertNotEquals(key, encoder.encode("order:{user:42}:" + StringUtils.repeat('y', 64)));
+    }
+
+    @Test
+    void emptyBracesAreNotHashTag() {
+        assertEquals("", DefaultLockKeyEncoder.hashTagOf("order:{}:1"));
+        assertEquals("{a}", DefaultLockKeyEncoder.hashTagOf("x{a}{b}"));
+        assertEquals("", DefaultLockKeyEncoder.hashTagOf("x{a"));
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.client.RedisException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class KeyedLockExecutorTest {
+
+    private LockTemplate lockTemplate;
+
+    @BeforeEach
+    void setUp() {
+        lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.getLock(anyString())).thenReturn(mock(RLock.class));
+    }
+
+    @Test
+    void redisFailureFailsTasksAndReleasesKey() throws Exception {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong()))
+                .thenThrow(new RedisException("connection lost"))
+                .thenReturn(true);
+
+        // 同步执行，任务提交时立即排空
+        KeyedLockExecutor executor = new KeyedLockExecutor(lockTemplate, Runnable::run);
+
+        CompletableFuture<Integer> failed = executor.submit("order", () -> 1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RedisException);
+
+        // key没有滞留，后续任务可以正常调度
+        assertEquals(2, executor.submit("order", () -> 2).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void lockTimeoutFailsTasks() {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong())).thenReturn(false);
+
+        KeyedLockExecutor executor = new KeyedLockExecutor(lockTemplate, Runnable::run);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> executor.submit("order", () -> 1).get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof LockException);
+    }
+
+}
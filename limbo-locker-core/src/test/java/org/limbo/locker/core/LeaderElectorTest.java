@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class LeaderElectorTest {
+
+    private static final long LEASE_TIME = 300;
+
+    private RScript script;
+
+    private LeaderElector elector;
+
+    /**
+     * 令续期请求阻塞，直到测试结束
+     */
+    private final CountDownLatch renewBlocked = new CountDownLatch(1);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RTopic topic = mock(RTopic.class);
+        when(topic.addListenerAsync(eq(Long.class), any(MessageListener.class))).thenReturn(RedissonPromise.newSucceededFuture(1));
+
+        script = mock(RScript.class);
+        RedissonClient redisson = mock(RedissonClient.class);
+        when(redisson.getId()).thenReturn("client");
+        when(redisson.getTopic(anyString(), eq(LongCodec.INSTANCE))).thenReturn(topic);
+        when(redisson.getScript(LongCodec.INSTANCE)).thenReturn(script);
+
+        RLock lock = mock(RLock.class);
+        when(lock.getName()).thenReturn("limbo_locker__leader:job");
+        when(lock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> RedissonPromise.newSucceededFuture(true));
+
+        LockTemplate lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.encodeKey(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(lockTemplate.lookupLock(anyString())).thenReturn(lock);
+        when(lockTemplate.routeClient(anyString())).thenReturn(redisson);
+
+        elector = new LeaderElector(lockTemplate, LEASE_TIME);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renewBlocked.countDown();
+        elector.shutdown();
+    }
+
+    @Test
+    void leaderWhileLeaseRenewed() throws InterruptedException {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenReturn(1L);
+
+        assertTrue(elector.isLeader("job"));
+        Thread.sleep(LEASE_TIME * 2);
+        assertTrue(elector.isLeader("job"));
+    }
+
+    @Test
+    void notLeaderOnceLeaseExpiresWithoutRenewal() throws InterruptedException {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenAnswer(invocation -> {
+                    renewBlocked.await();
+                    return 1L;
+                });
+
+        assertTrue(elector.isLeader("job"));
+
+        // 续期阻塞，本地仍为当选状态，但租约已过期
+        Thread.sleep(LEASE_TIME + 50);
+        assertFalse(elector.isLeader("job"));
+    }
+
+    @Test
+    void stepDownWhenRenewalRejected() throws InterruptedException {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenReturn(0L);
+
+        assertTrue(elector.isLeader("job"));
+        Thread.sleep(LEASE_TIME / 3 + 50);
+        assertFalse(elector.isLeader("job"));
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.client.RedisException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class LockBatcherTest {
+
+    private LockTemplate lockTemplate;
+
+    @BeforeEach
+    void setUp() {
+        lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.getLock(anyString())).thenReturn(mock(RLock.class));
+    }
+
+    @Test
+    void redisFailureFailsRequestsAndKeepsBatcherUsable() {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong()))
+                .thenThrow(new RedisException("connection lost"))
+                .thenReturn(true);
+
+        LockBatcher<Integer, Integer> batcher = new LockBatcher<>(lockTemplate,
+                (name, requests) -> requests.stream().map(r -> r * 2).collect(Collectors.toList()));
+
+        assertThrows(RedisException.class, () -> batcher.submit("order", 1));
+        assertEquals(4, batcher.submit("order", 2));
+    }
+
+    @Test
+    void batchesPerLockAreCapped() throws Exception {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong())).thenReturn(true);
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LockBatcher<Integer, Integer> batcher = new LockBatcher<>(lockTemplate, (name, requests) -> {
+            if (requests.contains(0)) {
+                entered.countDown();
+                release.await();
+            }
+            return requests;
+        });
+        batcher.setMaxBatchSize(1);
+        batcher.setMaxBatchesPerLock(2);
+
+        int[] results = new int[5];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int request = i;
+            threads.add(new Thread(() -> results[request] = batcher.submit("order", request)));
+        }
+
+        threads.get(0).start();
+        entered.await();
+
+        // 其他请求在排空期间入队，入队后阻塞等待处理结果
+        for (int i = 1; i < 5; i++) {
+            Thread thread = threads.get(i);
+            thread.start();
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        release.countDown();
+
+        for (int i = 0; i < 5; i++) {
+            threads.get(i).join(TimeUnit.SECONDS.toMillis(5));
+            assertEquals(i, results[i]);
+        }
+
+        // 5个批次，每次加锁最多处理2个批次
+        verify(lockTemplate, times(3)).tryLock(any(RLock.class), anyInt(), anyLong(), anyLong());
+    }
+
+}
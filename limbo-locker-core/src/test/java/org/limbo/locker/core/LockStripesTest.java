@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class LockStripesTest {
+
+    @Test
+    void stripesAreIsolatedByNamespace() {
+        Set<String> orderStripes = new HashSet<>();
+        Set<String> userStripes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            orderStripes.add(LockStripes.stripe("order:" + i, 4));
+            userStripes.add(LockStripes.stripe("user:" + i, 4));
+        }
+
+        assertEquals(4, orderStripes.size());
+        assertEquals(4, userStripes.size());
+        orderStripes.forEach(name -> assertTrue(name.startsWith(LockStripes.STRIPE_PREFIX + "order:")));
+        orderStripes.retainAll(userStripes);
+        assertTrue(orderStripes.isEmpty());
+    }
+
+    @Test
+    void multiColonNamesShareNamespace() {
+        Set<String> stripes = new HashSet<>();
+        for (int tenant = 0; tenant < 50; tenant++) {
+            for (int order = 0; order < 10; order++) {
+                stripes.add(LockStripes.stripe("tenant:" + tenant + ":order:" + order, 4));
+            }
+        }
+
+        // ID中的":"不会产生新的命名空间，分段锁数量不超过分段数量
+        assertEquals(4, stripes.size());
+        stripes.forEach(name -> assertTrue(name.startsWith(LockStripes.STRIPE_PREFIX + "tenant:4:")));
+    }
+
+    @Test
+    void sameNameMapsToSameStripe() {
+        assertEquals(LockStripes.stripe("order:42", 16), LockStripes.stripe("order:42", 16));
+        assertFalse(LockStripes.stripe("order:42", 16).equals(LockStripes.stripe("order:42", 8)));
+    }
+
+    @Test
+    void internalNamesAreNotStriped() {
+        String leader = "limbo_locker__leader:scheduler";
+        assertEquals(leader, LockStripes.stripe(leader, 16));
+
+        // 已分段的锁不会被再次分段
+        String striped = LockStripes.stripe("order:42", 16);
+        assertEquals(striped, LockStripes.stripe(striped, 8));
+    }
+
+    @Test
+    void multiStripesAreMergedAndSorted() {
+        String[] names = LockStripes.stripe(new String[]{"order:1", "order:1", "user:1"}, 1);
+        assertArrayEquals(new String[]{
+                LockStripes.STRIPE_PREFIX + "order:1:0",
+                LockStripes.STRIPE_PREFIX + "user:1:0"
+        }, names);
+    }
+
+}
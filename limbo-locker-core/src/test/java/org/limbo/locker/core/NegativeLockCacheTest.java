@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.RedissonLock;
+import org.redisson.api.RLock;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class NegativeLockCacheTest {
+
+    private RTopic topic;
+
+    private RLock lock;
+
+    private NegativeLockCache cache;
+
+    @BeforeEach
+    void setUp() {
+        RedissonClient redisson = mock(RedissonClient.class);
+        topic = mock(RTopic.class);
+        when(redisson.getTopic(anyString(), eq(LongCodec.INSTANCE))).thenReturn(topic);
+
+        lock = mock(RLock.class);
+        when(lock.getName()).thenReturn("order:1");
+
+        cache = new NegativeLockCache(redisson, 100, TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void markHeldAfterSubscribed() {
+        ArgumentCaptor<MessageListener<Long>> listener = ArgumentCaptor.forClass(MessageListener.class);
+        when(topic.addListenerAsync(eq(Long.class), listener.capture())).thenReturn(RedissonPromise.newSucceededFuture(1));
+        when(lock.remainTimeToLiveAsync()).thenReturn(RedissonPromise.newSucceededFuture(5000L));
+
+        cache.markHeld(lock);
+        assertTrue(cache.isHeldElsewhere("order:1"));
+
+        // 收到解锁通知
+        listener.getValue().onMessage("channel", 0L);
+        assertFalse(cache.isHeldElsewhere("order:1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipMarkWhenAlreadyMarkedOrMarking() {
+        when(topic.addListenerAsync(eq(Long.class), any(MessageListener.class))).thenReturn(RedissonPromise.newSucceededFuture(1));
+        RedissonPromise<Long> pttl = new RedissonPromise<>();
+        when(lock.remainTimeToLiveAsync()).thenReturn(pttl);
+
+        // 记录中，尚未读取到有效期
+        cache.markHeld(lock);
+        cache.markHeld(lock);
+
+        // 已有有效记录
+        pttl.trySuccess(5000L);
+        assertTrue(cache.isHeldElsewhere("order:1"));
+        cache.markHeld(lock);
+
+        verify(topic, times(1)).addListenerAsync(eq(Long.class), any(MessageListener.class));
+        verify(lock, times(1)).remainTimeToLiveAsync();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void notMarkedWhenSubscribeFails() {
+        when(topic.addListenerAsync(eq(Long.class), any(MessageListener.class)))
+                .thenReturn(RedissonPromise.newFailedFuture(new RedisException("subscribe failed")));
+
+        cache.markHeld(lock);
+
+        assertFalse(cache.isHeldElsewhere("order:1"));
+        verify(lock, never()).remainTimeToLiveAsync();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void notMarkedWhenLockReleasedBeforeSubscribed() {
+        when(topic.addListenerAsync(eq(Long.class), any(MessageListener.class))).thenReturn(RedissonPromise.newSucceededFuture(1));
+        when(lock.remainTimeToLiveAsync()).thenReturn(RedissonPromise.newSucceededFuture(-2L));
+
+        cache.markHeld(lock);
+
+        assertFalse(cache.isHeldElsewhere("order:1"));
+        verify(topic).removeListenerAsync(1);
+    }
+
+    @Test
+    void reentrantLockSkipsNegativeCache() throws InterruptedException {
+        NegativeLockCache negativeLockCache = mock(NegativeLockCache.class);
+        when(negativeLockCache.isHeldElsewhere("order:1")).thenReturn(true);
+
+        RedissonLock redissonLock = mock(RedissonLock.class);
+        when(redissonLock.getName()).thenReturn("order:1");
+        when(redissonLock.tryLock(anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        LockTemplate template = new LockTemplate();
+        template.setNegativeLockCache(negativeLockCache);
+
+        // 其他线程持有时本地拒绝
+        assertFalse(template.tryLock(redissonLock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        verify(redissonLock, never()).tryLock(anyLong(), anyLong(), any(TimeUnit.class));
+
+        // 当前线程持有时重入
+        when(redissonLock.isHeldByCurrentThread()).thenReturn(true);
+        assertTrue(template.tryLock(redissonLock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+    }
+
+}
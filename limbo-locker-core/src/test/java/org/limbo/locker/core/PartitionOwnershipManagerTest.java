@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class PartitionOwnershipManagerTest {
+
+    private static final String PARTITION = PartitionOwnershipManager.PARTITION_LOCK_PREFIX + "job:0";
+
+    private final MultiLockTemplate lockTemplate = mock(MultiLockTemplate.class);
+
+    /**
+     * 重新均衡通知的监听器
+     */
+    private final AtomicReference<MessageListener<String>> rebalanceListener = new AtomicReference<>();
+
+    /**
+     * 令续期或认领请求阻塞，直到测试结束
+     */
+    private final CountDownLatch renewBlocked = new CountDownLatch(1);
+
+    private PartitionOwnershipManager manager;
+
+    @AfterEach
+    void tearDown() {
+        renewBlocked.countDown();
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void notOwnerOnceLeaseExpiresWithoutRenewal() throws InterruptedException {
+        manager = newManager(300);
+        when(lockTemplate.renewEach(any(LockEachResult.class))).thenAnswer(invocation -> {
+            renewBlocked.await();
+            return invocation.getArgument(0);
+        });
+
+        manager.start();
+        awaitTrue(() -> manager.isOwner(0), 1000);
+
+        // 续期阻塞，本地仍为持有状态，但分区锁已过期
+        Thread.sleep(300 + 50);
+        assertFalse(manager.isOwner(0));
+        assertTrue(manager.getOwnedPartitions().isEmpty());
+    }
+
+    @Test
+    void releaseOwnershipWhenRenewalRejected() throws InterruptedException {
+        manager = newManager(30000);
+        when(lockTemplate.renewEach(any(LockEachResult.class)))
+                .thenAnswer(invocation -> result(false));
+
+        manager.start();
+        awaitTrue(() -> manager.isOwner(0), 1000);
+
+        // 其他节点加入触发均衡，续期被拒绝后立即放弃，无需等待重新认领完成或分区锁过期
+        rebalanceListener.get().onMessage("topic", "other");
+        awaitTrue(() -> !manager.isOwner(0), 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PartitionOwnershipManager newManager(long leaseTime) {
+        RMapCache<String, String> members = mock(RMapCache.class);
+        when(members.readAllKeySet()).thenReturn(Collections.emptySet());
+
+        RTopic topic = mock(RTopic.class);
+        doAnswer(invocation -> {
+            rebalanceListener.set(invocation.getArgument(1));
+            return 1;
+        }).when(topic).addListener(eq(String.class), any(MessageListener.class));
+
+        RedissonClient redisson = mock(RedissonClient.class);
+        when(redisson.getId()).thenReturn("client");
+        when(redisson.<String, String>getMapCache(anyString(), eq(StringCodec.INSTANCE))).thenReturn(members);
+        when(redisson.getTopic(anyString(), eq(StringCodec.INSTANCE))).thenReturn(topic);
+
+        when(lockTemplate.getRedisson()).thenReturn(redisson);
+        when(lockTemplate.encodeKey(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // 首次认领成功，之后的认领阻塞，直到测试结束
+        AtomicReference<Boolean> claimable = new AtomicReference<>(true);
+        when(lockTemplate.tryLockEach(any(Collection.class), eq(leaseTime), eq(TimeUnit.MILLISECONDS), anyString()))
+                .thenAnswer(invocation -> {
+                    if (claimable.getAndSet(false)) {
+                        return result(true);
+                    }
+                    renewBlocked.await();
+                    return result(false);
+                });
+
+        return new PartitionOwnershipManager(lockTemplate, "job", 1, leaseTime);
+    }
+
+    private static LockEachResult result(boolean acquired) {
+        Map<String, String> acquiredKeys = new LinkedHashMap<>();
+        if (acquired) {
+            acquiredKeys.put(PARTITION, PARTITION);
+        }
+        return new LockEachResult(Collections.singletonMap(PARTITION, acquired), acquiredKeys, "owner", 0);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.client.RedisException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class PriorityGateTest {
+
+    @Test
+    void priorityOffsetClamped() {
+        long agingNanos = Long.MAX_VALUE / 1000;
+        assertEquals(250 * agingNanos, PriorityGate.priorityOffset(Integer.MAX_VALUE, agingNanos));
+        assertEquals(-250 * agingNanos, PriorityGate.priorityOffset(Integer.MIN_VALUE, agingNanos));
+        assertEquals(5000, PriorityGate.priorityOffset(5, 1000));
+        assertEquals(0, PriorityGate.priorityOffset(Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    void extremePriorityStillPassesFirst() throws Exception {
+        PriorityGate gate = new PriorityGate();
+        long agingNanos = TimeUnit.SECONDS.toNanos(1);
+        assertTrue(gate.acquire(0, agingNanos, 0));
+
+        List<Integer> passed = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch low = queue(executor, gate, Integer.MIN_VALUE, agingNanos, passed);
+            CountDownLatch high = queue(executor, gate, Integer.MAX_VALUE, agingNanos, passed);
+
+            gate.release();
+            assertTrue(low.await(5, TimeUnit.SECONDS));
+            assertTrue(high.await(5, TimeUnit.SECONDS));
+            assertEquals(Integer.MAX_VALUE, passed.get(0));
+            assertEquals(Integer.MIN_VALUE, passed.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void gateReleasedWhenLockingThrows() throws Exception {
+        LockTemplate template = new LockTemplate();
+
+        RLock failing = mock(RLock.class);
+        when(failing.getName()).thenReturn("job");
+        when(failing.tryLock(anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenThrow(new RedisException("redis down"));
+        assertThrows(RedisException.class,
+                () -> template.tryLock(failing, 1, 100, 1000, TimeUnit.MILLISECONDS, 1));
+
+        // 其他线程能立即通过闸门，说明抛出异常时闸门已释放
+        RLock lock = mock(RLock.class);
+        when(lock.getName()).thenReturn("job");
+        when(lock.tryLock(anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> locked = executor.submit(() -> template.tryLock(lock, 1, 100, 1000, TimeUnit.MILLISECONDS, 1));
+            assertTrue(locked.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 在其他线程中排队通过闸门，等待线程进入等待状态后返回，通过闸门后记录优先级并立即释放
+     */
+    private static CountDownLatch queue(ExecutorService executor, PriorityGate gate, int priority, long agingNanos,
+                                        List<Integer> passed) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread[] waiter = new Thread[1];
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            waiter[0] = Thread.currentThread();
+            started.countDown();
+            try {
+                if (gate.acquire(priority, agingNanos, TimeUnit.SECONDS.toNanos(5))) {
+                    passed.add(priority);
+                    gate.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+
+        started.await();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (waiter[0].getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return done;
+    }
+
+}
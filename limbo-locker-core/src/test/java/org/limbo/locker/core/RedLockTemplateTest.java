@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class RedLockTemplateTest {
+
+    private final List<RedissonClient> clients = new ArrayList<>();
+
+    private final List<RLock> locks = new ArrayList<>();
+
+    @Test
+    void acquiredOnQuorumWithoutWaitingSlowNode() {
+        RedLockTemplate template = newTemplate(
+                RedissonPromise.newSucceededFuture(true),
+                RedissonPromise.newSucceededFuture(true),
+                new RedissonPromise<>());
+
+        RedLockLease lease = template.tryLock("job");
+        assertNotNull(lease);
+        assertEquals(2, lease.getAcquiredNodes());
+        locks.forEach(lock -> verify(lock, never()).unlockAsync(anyLong()));
+    }
+
+    @Test
+    void failedWithoutQuorumAndUnlockAll() {
+        RedLockTemplate template = newTemplate(
+                RedissonPromise.newSucceededFuture(true),
+                RedissonPromise.newSucceededFuture(false),
+                RedissonPromise.newFailedFuture(new IllegalStateException("node down")));
+
+        assertNull(template.tryLock("job"));
+        locks.forEach(lock -> verify(lock).unlockAsync(anyLong()));
+    }
+
+    @Test
+    void unlockLateAcquiredNodeAfterTimeout() {
+        RedissonPromise<Boolean> late = new RedissonPromise<>();
+        RedLockTemplate template = newTemplate(
+                RedissonPromise.newSucceededFuture(true),
+                new RedissonPromise<>(),
+                late);
+        template.setResponseTimeout(100);
+
+        assertNull(template.tryLock("job"));
+        locks.forEach(lock -> verify(lock).unlockAsync(anyLong()));
+
+        // 超时后才返回的加锁成功需再次解锁，不能残留到过期
+        late.trySuccess(true);
+        verify(locks.get(2), times(2)).unlockAsync(anyLong());
+        verify(locks.get(1), times(1)).unlockAsync(anyLong());
+    }
+
+    @SafeVarargs
+    private final RedLockTemplate newTemplate(RFuture<Boolean>... results) {
+        for (RFuture<Boolean> result : results) {
+            RLock lock = mock(RLock.class);
+            when(lock.getName()).thenReturn("job");
+            when(lock.tryLockAsync(eq(0L), anyLong(), any(TimeUnit.class), anyLong())).thenReturn(result);
+            when(lock.unlockAsync(anyLong())).thenAnswer(invocation -> RedissonPromise.newSucceededFuture(null));
+
+            RedissonClient client = mock(RedissonClient.class);
+            when(client.getLock("job")).thenReturn(lock);
+            clients.add(client);
+            locks.add(lock);
+        }
+        return new RedLockTemplate(clients);
+    }
+
+}
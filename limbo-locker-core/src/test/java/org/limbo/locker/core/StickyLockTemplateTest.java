@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.RedissonLock;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class StickyLockTemplateTest {
+
+    private StickyLockTemplate template;
+
+    private RLock lock;
+
+    private RScript script;
+
+    @BeforeEach
+    void setUp() {
+        RedissonClient redisson = mock(RedissonClient.class);
+        script = mock(RScript.class);
+        when(redisson.getId()).thenReturn("client");
+        when(redisson.getScript(LongCodec.INSTANCE)).thenReturn(script);
+
+        lock = mock(RLock.class);
+        when(lock.getName()).thenReturn("sticky");
+        when(lock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> RedissonPromise.newSucceededFuture(true));
+        when(lock.unlockAsync(anyLong())).thenAnswer(invocation -> RedissonPromise.newSucceededFuture(null));
+
+        template = new StickyLockTemplate();
+        template.setRedisson(redisson);
+        template.setParkTime(TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        template.shutdown();
+    }
+
+    @Test
+    void handOffParkedLeaseWithoutRedis() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+            template.unlock(lock);
+        }
+
+        // 剩余有效期充足，只有首次加锁访问Redis
+        verify(lock, times(1)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+        verify(script, never()).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any());
+    }
+
+    @Test
+    void renewParkedLeaseBelowThreshold() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenReturn(1L);
+        template.setRenewThreshold(1);
+
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+
+        verify(lock, times(1)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+        verify(script, times(1)).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any());
+    }
+
+    @Test
+    void fallBackToTryLockWhenParkedLeaseLost() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenReturn(0L);
+        template.setRenewThreshold(1);
+
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+
+        verify(lock, times(2)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+    }
+
+    @Test
+    void fallBackToTryLockWhenTakeOverFails() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenThrow(new RedisException("connection lost"));
+        template.setRenewThreshold(1);
+
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+        assertTrue(template.tryLock(lock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(lock);
+
+        verify(lock, times(2)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+    }
+
+    @Test
+    void parkedLeaseSkipsNegativeCache() {
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .thenReturn(1L);
+        NegativeLockCache negativeLockCache = mock(NegativeLockCache.class);
+        when(negativeLockCache.isHeldElsewhere("sticky")).thenReturn(true);
+
+        RedissonLock redissonLock = mock(RedissonLock.class);
+        when(redissonLock.getName()).thenReturn("sticky");
+        when(redissonLock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> RedissonPromise.newSucceededFuture(true));
+        when(redissonLock.unlockAsync(anyLong())).thenAnswer(invocation -> RedissonPromise.newSucceededFuture(null));
+
+        assertTrue(template.tryLock(redissonLock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.setNegativeLockCache(negativeLockCache);
+        template.unlock(redissonLock);
+        verify(negativeLockCache).invalidate("sticky");
+
+        // 停放中的锁由本节点持有，不被近端缓存拒绝
+        assertTrue(template.tryLock(redissonLock, 1, 0, 1000, TimeUnit.MILLISECONDS));
+        template.unlock(redissonLock);
+        verify(negativeLockCache, never()).markHeld(any(RLock.class));
+    }
+
+}
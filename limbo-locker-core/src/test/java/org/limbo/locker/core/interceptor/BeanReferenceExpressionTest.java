@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.annotations.LockKind;
+import org.limbo.locker.core.annotations.Locked;
+import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
+import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
+import org.limbo.locker.core.evaluation.spel.SpELNameEvaluator;
+import org.redisson.api.RLock;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 表达式中通过 @beanName 引用容器中的Bean
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+class BeanReferenceExpressionTest {
+
+    private final OrderService orderService = new OrderService();
+
+    private PayService proxy;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("orderService", orderService);
+
+        SpELNameEvaluator nameEvaluator = new SpELNameEvaluator();
+        nameEvaluator.setBeanFactory(beanFactory);
+
+        LockTemplate lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.getLock(anyString(), any(LockKind.class))).thenReturn(mock(RLock.class));
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        LockInterceptor interceptor = new LockInterceptor(nameEvaluator, new AnnotationLockAttributeSource());
+        interceptor.setNameEvaluationContextFactory(new DefaultNameEvaluationContextFactory());
+        interceptor.setLockTemplate(lockTemplate);
+
+        ProxyFactory factory = new ProxyFactory(new PayService());
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        proxy = (PayService) factory.getProxy();
+    }
+
+    @Test
+    void skipIfReferencesBean() {
+        assertEquals("paid:1", proxy.pay("1"));
+
+        orderService.paid.add("1");
+        assertNull(proxy.pay("1"));
+    }
+
+
+    static class OrderService {
+
+        final Set<String> paid = new HashSet<>();
+
+        public boolean isPaid(String orderId) {
+            return paid.contains(orderId);
+        }
+
+    }
+
+
+    static class PayService {
+
+        @Locked(expression = "'order:' + #p0", skipIf = "@orderService.isPaid(#p0)")
+        public String pay(String orderId) {
+            return "paid:" + orderId;
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LeaderElector;
+import org.limbo.locker.core.annotations.ClusterSingleton;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class ClusterSingletonInterceptorTest {
+
+    @Test
+    void skippedMethodReturnsDefaultValue() throws Throwable {
+        LeaderElector leaderElector = mock(LeaderElector.class);
+        when(leaderElector.isLeader(anyString())).thenReturn(false);
+
+        ClusterSingletonInterceptor interceptor = new ClusterSingletonInterceptor();
+        interceptor.setLeaderElector(leaderElector);
+
+        MethodInvocation count = invocationOf("count");
+        assertEquals(0L, interceptor.invoke(count));
+        verify(count, never()).proceed();
+
+        MethodInvocation flag = invocationOf("flag");
+        assertEquals(false, interceptor.invoke(flag));
+
+        MethodInvocation name = invocationOf("name");
+        assertNull(interceptor.invoke(name));
+    }
+
+
+    private MethodInvocation invocationOf(String methodName) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(Jobs.class.getMethod(methodName));
+        return invocation;
+    }
+
+
+    static class Jobs {
+
+        @ClusterSingleton("job")
+        public long count() {
+            return 1;
+        }
+
+        @ClusterSingleton("job")
+        public boolean flag() {
+            return true;
+        }
+
+        @ClusterSingleton("job")
+        public String name() {
+            return "job";
+        }
+
+    }
+
+}
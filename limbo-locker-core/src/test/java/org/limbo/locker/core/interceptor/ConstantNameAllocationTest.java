@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.annotations.LockKind;
+import org.limbo.locker.core.annotations.Locked;
+import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
+import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
+import org.limbo.locker.core.evaluation.spel.SpELNameEvaluator;
+import org.redisson.api.RLock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 固定锁名的加锁路径不应产生对象分配，通过线程分配字节数统计验证
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+class ConstantNameAllocationTest {
+
+    private static final int ITERATIONS = 20000;
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final LockAspectSupport.LockInvocation INVOCATION = () -> null;
+
+    @Test
+    void constantNamePathDoesNotAllocate() throws Throwable {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        LockInterceptor interceptor = new LockInterceptor(new SpELNameEvaluator(), new AnnotationLockAttributeSource());
+        interceptor.setNameEvaluationContextFactory(new DefaultNameEvaluationContextFactory());
+        interceptor.setLockTemplate(new NoopLockTemplate());
+        Method method = ConstantService.class.getMethod("run");
+
+        // 预热，解析执行计划并触发JIT编译
+        for (int i = 0; i < ITERATIONS * 5; i++) {
+            interceptor.invokeInLock(method, ConstantService.class, NO_ARGS, INVOCATION);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            interceptor.invokeInLock(method, ConstantService.class, NO_ARGS, INVOCATION);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // 任何每次调用的分配至少16字节，统计本身只产生少量分配
+        assertTrue(allocated < ITERATIONS, "allocated " + allocated + " bytes in " + ITERATIONS + " calls");
+    }
+
+
+    /**
+     * 不访问Redis的加锁模板，加解锁直接成功
+     */
+    static class NoopLockTemplate extends LockTemplate {
+
+        private final RLock lock = mock(RLock.class);
+
+        @Override
+        public RLock getLock(String lockName, LockKind lockKind) {
+            return lock;
+        }
+
+        @Override
+        public boolean tryLock(RLock lock, int retryTimes, long waitTime, long leaseTime, TimeUnit timeUnit) {
+            return true;
+        }
+
+        @Override
+        public void release(RLock lock) {
+        }
+    }
+
+
+    static class ConstantService {
+
+        @Locked(name = "constant-job")
+        public void run() {
+        }
+
+    }
+
+}
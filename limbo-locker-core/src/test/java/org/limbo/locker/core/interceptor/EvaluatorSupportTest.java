@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LockException;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.annotations.Locked;
+import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
+import org.limbo.locker.core.evaluation.AbstractNameEvaluator;
+import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
+import org.limbo.locker.core.evaluation.NameEvaluationContext;
+import org.limbo.locker.core.evaluation.NameEvaluator;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class EvaluatorSupportTest {
+
+    @Test
+    void conditionRequiresEvaluatorSupport() throws Exception {
+        LockException e = assertThrows(LockException.class, () -> operationOf(new NameOnlyEvaluator(), "conditional"));
+        assertTrue(e.getMessage().contains("conditional"), e.getMessage());
+    }
+
+    @Test
+    void priorityExpressionRequiresEvaluatorSupport() {
+        LockException e = assertThrows(LockException.class, () -> operationOf(new NameOnlyEvaluator(), "prioritized"));
+        assertTrue(e.getMessage().contains("prioritized"), e.getMessage());
+    }
+
+    @Test
+    void plainLockDoesNotRequireExpressions() throws Exception {
+        operationOf(new NameOnlyEvaluator(), "plain");
+    }
+
+
+    private LockOperation<?> operationOf(NameEvaluator nameEvaluator, String methodName) throws NoSuchMethodException {
+        LockInterceptor interceptor = new LockInterceptor(nameEvaluator, new AnnotationLockAttributeSource());
+        interceptor.setNameEvaluationContextFactory(new DefaultNameEvaluationContextFactory());
+        interceptor.setLockTemplate(mock(LockTemplate.class));
+
+        Method method = Service.class.getMethod(methodName, String.class);
+        return interceptor.getLockOperation(method, Service.class);
+    }
+
+
+    /**
+     * 只支持计算锁名称的计算器
+     */
+    static class NameOnlyEvaluator extends AbstractNameEvaluator {
+        @Override
+        protected String evaluateLockName(NameEvaluationContext context, String expression) {
+            return expression;
+        }
+    }
+
+
+    static class Service {
+
+        @Locked(expression = "order", condition = "#p0 != null")
+        public void conditional(String id) {
+        }
+
+        @Locked(expression = "order", priorityExpression = "#p0.length()")
+        public void prioritized(String id) {
+        }
+
+        @Locked(expression = "order")
+        public void plain(String id) {
+        }
+
+    }
+
+}
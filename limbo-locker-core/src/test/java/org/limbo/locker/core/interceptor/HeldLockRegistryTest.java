@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.annotations.LockKind;
+import org.limbo.locker.core.annotations.MultiLockMode;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class HeldLockRegistryTest {
+
+    @Test
+    void sameNameInOtherScopeIsNotReentrant() {
+        Object template = new Object();
+        Object reentrant = HeldLockRegistry.scopeOf(template, LockKind.REENTRANT);
+        Object fair = HeldLockRegistry.scopeOf(template, LockKind.FAIR);
+        Object any = HeldLockRegistry.scopeOf(template, MultiLockMode.ANY);
+        Object otherTemplate = HeldLockRegistry.scopeOf(new Object(), LockKind.REENTRANT);
+
+        HeldLockRegistry.hold(reentrant, "order:1");
+        try {
+            assertTrue(HeldLockRegistry.isHeld(reentrant, "order:1"));
+            assertTrue(HeldLockRegistry.isHeld(HeldLockRegistry.scopeOf(template, LockKind.REENTRANT), "order:1"));
+            assertFalse(HeldLockRegistry.isHeld(fair, "order:1"));
+            assertFalse(HeldLockRegistry.isHeld(any, new String[]{"order:1"}));
+            assertFalse(HeldLockRegistry.isHeld(otherTemplate, "order:1"));
+        } finally {
+            HeldLockRegistry.unhold(reentrant, "order:1");
+        }
+        assertFalse(HeldLockRegistry.isHeld(reentrant, "order:1"));
+    }
+
+    @Test
+    void nestedHoldReleasesOnOutermostUnhold() {
+        Object scope = HeldLockRegistry.scopeOf(new Object(), LockKind.REENTRANT);
+        String[] names = {"a", "b"};
+
+        HeldLockRegistry.hold(scope, names);
+        HeldLockRegistry.hold(scope, "a");
+        HeldLockRegistry.unhold(scope, names);
+        assertTrue(HeldLockRegistry.isHeld(scope, "a"));
+        assertFalse(HeldLockRegistry.isHeld(scope, names));
+
+        HeldLockRegistry.unhold(scope, "a");
+        assertFalse(HeldLockRegistry.isHeld(scope, "a"));
+    }
+
+}
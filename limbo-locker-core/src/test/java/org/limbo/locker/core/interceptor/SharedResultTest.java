@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LockException;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.annotations.LockKind;
+import org.limbo.locker.core.annotations.Locked;
+import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
+import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
+import org.limbo.locker.core.evaluation.spel.SpELNameEvaluator;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class SharedResultTest {
+
+    private LockTemplate lockTemplate;
+
+    private RedissonClient redisson;
+
+    private RTopic topic;
+
+    private RBucket<SharedResult> bucket;
+
+    private SharedService proxy;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisson = mock(RedissonClient.class);
+        topic = mock(RTopic.class);
+        when(redisson.getTopic(SharedResultBroker.RESULT_TOPIC, StringCodec.INSTANCE)).thenReturn(topic);
+        bucket = mock(RBucket.class);
+        doReturn(bucket).when(redisson).getBucket(anyString());
+
+        lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.getRedisson()).thenReturn(redisson);
+        when(lockTemplate.getLock(anyString(), any(LockKind.class))).thenReturn(mock(RLock.class));
+
+        LockInterceptor interceptor = new LockInterceptor(new SpELNameEvaluator(), new AnnotationLockAttributeSource());
+        interceptor.setNameEvaluationContextFactory(new DefaultNameEvaluationContextFactory());
+        interceptor.setLockTemplate(lockTemplate);
+
+        ProxyFactory factory = new ProxyFactory(new SharedService());
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        proxy = (SharedService) factory.getProxy();
+    }
+
+    @Test
+    void resultKeyContainsMethodAndUnstripedName() {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        assertEquals("first:1", proxy.first("1"));
+        assertEquals(42, proxy.second("1"));
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(redisson, atLeastOnce()).getBucket(keys.capture());
+        List<String> bucketKeys = keys.getAllValues();
+
+        String firstKey = bucketKeys.get(0);
+        String secondKey = bucketKeys.get(bucketKeys.size() - 1);
+        assertTrue(firstKey.startsWith(SharedResultBroker.RESULT_KEY_PREFIX), firstKey);
+        assertTrue(firstKey.endsWith(SharedService.class.getName() + ".first(java.lang.String):order:1"), firstKey);
+        assertTrue(secondKey.endsWith(SharedService.class.getName() + ".second(java.lang.String):order:1"), secondKey);
+        assertNotEquals(firstKey, secondKey);
+
+        verify(topic).publishAsync(eq(SharedService.class.getName() + ".first(java.lang.String):order:1"));
+    }
+
+    @Test
+    void followerWaitIsBoundedByWaitTime() {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+        // 持有时间10s，等待时间为0时不等待共享结果
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            assertThrows(LockException.class, () -> proxy.first("1"));
+        });
+    }
+
+    @Test
+    void laterCallDoesNotReuseStoredResult() {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        when(bucket.get()).thenReturn(new SharedResult("stale"));
+
+        // 之前执行共享的结果仍在有效期内，但不是本次等待期间发布的，仍需执行方法
+        assertEquals("first:1", proxy.first("1"));
+        verify(bucket, never()).get();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void followerUsesResultPublishedWhileWaiting() throws Exception {
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+        when(bucket.get()).thenReturn(new SharedResult("shared"));
+        ArgumentCaptor<MessageListener<String>> listener = ArgumentCaptor.forClass(MessageListener.class);
+
+        // 持有者在等待期间发布结果
+        String resultKey = SharedService.class.getName() + ".waiting(java.lang.String):order:1";
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> {
+                verify(topic).addListener(eq(String.class), listener.capture());
+                listener.getValue().onMessage(SharedResultBroker.RESULT_TOPIC, resultKey);
+            }, 200, TimeUnit.MILLISECONDS);
+
+            assertEquals("shared", assertTimeoutPreemptively(Duration.ofSeconds(2), () -> proxy.waiting("1")));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+
+    static class SharedService {
+
+        @Locked(expression = "'order:' + #p0", sharedResultTtl = 1000, stripes = 4, holdTime = 10000)
+        public String first(String id) {
+            return "first:" + id;
+        }
+
+        @Locked(expression = "'order:' + #p0", sharedResultTtl = 1000)
+        public Integer second(String id) {
+            return 42;
+        }
+
+        @Locked(expression = "'order:' + #p0", sharedResultTtl = 1000, waitTime = 1000)
+        public String waiting(String id) {
+            return "waiting:" + id;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.core.interceptor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.annotations.LockKind;
+import org.limbo.locker.core.annotations.Locked;
+import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
+import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
+import org.limbo.locker.core.evaluation.spel.SpELNameEvaluator;
+import org.redisson.api.RLock;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brozen
+ * @since 1.0
+ */
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private FlightService service;
+
+    private FlightService proxy;
+
+    @BeforeEach
+    void setUp() {
+        LockTemplate lockTemplate = mock(LockTemplate.class);
+        when(lockTemplate.getLock(anyString(), any(LockKind.class))).thenReturn(mock(RLock.class));
+        when(lockTemplate.tryLock(any(RLock.class), anyInt(), anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        LockInterceptor interceptor = new LockInterceptor(new SpELNameEvaluator(), new AnnotationLockAttributeSource());
+        interceptor.setNameEvaluationContextFactory(new DefaultNameEvaluationContextFactory());
+        interceptor.setLockTemplate(lockTemplate);
+
+        service = new FlightService();
+        ProxyFactory factory = new ProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        proxy = (FlightService) factory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void otherMethodDoesNotJoinFlight() throws Exception {
+        Future<String> leader = executor.submit(() -> proxy.leader("1"));
+        service.entered.await();
+
+        // 同名锁的其他方法不共享结果
+        assertEquals(42, assertTimeoutPreemptively(Duration.ofSeconds(5), () -> proxy.other("1")));
+
+        service.release.countDown();
+        assertEquals("leader:1", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void sameStripeDoesNotJoinFlight() throws Exception {
+        Future<String> leader = executor.submit(() -> proxy.leader("1"));
+        service.entered.await();
+
+        // 分段数量为1，所有锁名落在同一分段，但不共享结果
+        assertEquals("leader:2", assertTimeoutPreemptively(Duration.ofSeconds(5), () -> proxy.leader("2")));
+
+        service.release.countDown();
+        assertEquals("leader:1", leader.get(5, TimeUnit.SECONDS));
+    }
+
+
+    static class FlightService {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Locked(expression = "'order:' + #p0", singleFlight = true, stripes = 1)
+        public String leader(String id) throws InterruptedException {
+            if ("1".equals(id)) {
+                entered.countDown();
+                release.await();
+            }
+            return "leader:" + id;
+        }
+
+        @Locked(expression = "'order:' + #p0", singleFlight = true, stripes = 1)
+        public Integer other(String id) {
+            return 42;
+        }
+
+    }
+
+}
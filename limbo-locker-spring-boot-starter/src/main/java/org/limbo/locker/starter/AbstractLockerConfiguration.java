@@ -16,8 +16,16 @@
 
 package org.limbo.locker.starter;
 
+import org.apache.commons.lang3.StringUtils;
+import org.limbo.locker.core.DefaultLockKeyEncoder;
+import org.limbo.locker.core.LockCache;
+import org.limbo.locker.core.LockKeyEncoder;
+import org.limbo.locker.core.LockTemplate;
+import org.limbo.locker.core.NegativeLockCache;
+import org.limbo.locker.core.StickyLockTemplate;
 import org.limbo.locker.starter.annotations.EnableLocker;
 import org.limbo.locker.starter.configurations.LockTemplateConfiguration;
+import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportAware;
@@ -52,4 +60,60 @@ public abstract class AbstractLockerConfiguration extends LockTemplateConfigurat
         }
     }
 
+
+    /**
+     * 根据 {@link EnableLocker#stickyParkTime()} 决定是否使用粘性加锁模板
+     */
+    @Override
+    protected LockTemplate newLockTemplate() {
+        long stickyParkTime = enableLocker == null ? 0 : enableLocker.<Long>getNumber("stickyParkTime");
+        if (stickyParkTime <= 0) {
+            return super.newLockTemplate();
+        }
+
+        StickyLockTemplate template = new StickyLockTemplate();
+        template.setParkTime(stickyParkTime);
+        return template;
+    }
+
+
+    /**
+     * 根据 {@link EnableLocker#lockCacheSize()} 生成锁对象缓存
+     */
+    @Override
+    protected LockCache createLockCache() {
+        int lockCacheSize = enableLocker == null ? 0 : enableLocker.<Integer>getNumber("lockCacheSize");
+        return lockCacheSize > 0 ? new LockCache(lockCacheSize) : null;
+    }
+
+
+    /**
+     * 根据 {@link EnableLocker#namespace()}、{@link EnableLocker#keyDigestThreshold()}、{@link EnableLocker#keyReverseMapSize()}
+     * 生成锁key编码器
+     */
+    @Override
+    protected LockKeyEncoder createLockKeyEncoder() {
+        if (enableLocker == null) {
+            return null;
+        }
+
+        String namespace = enableLocker.getString("namespace");
+        int keyDigestThreshold = enableLocker.getNumber("keyDigestThreshold");
+        if (StringUtils.isBlank(namespace) && keyDigestThreshold <= 0) {
+            return null;
+        }
+        int keyReverseMapSize = enableLocker.getNumber("keyReverseMapSize");
+        return new DefaultLockKeyEncoder(namespace, keyDigestThreshold, keyReverseMapSize);
+    }
+
+
+    /**
+     * 根据 {@link EnableLocker#negativeCacheTtl()} 生成锁占用近端缓存
+     */
+    @Override
+    protected NegativeLockCache createNegativeLockCache(RedissonClient redisson) {
+        long negativeCacheTtl = enableLocker == null ? 0 : enableLocker.<Long>getNumber("negativeCacheTtl");
+        return negativeCacheTtl > 0 ? new NegativeLockCache(redisson, 10000, negativeCacheTtl) : null;
+    }
+
 }
@@ -38,4 +38,49 @@ public @interface EnableLocker {
      */
     int aspectOrder() default 200;
 
+    /**
+     * 锁对象缓存的容量，缓存热点锁名对应的锁对象，避免重复生成。小于等于0时不缓存。默认0。
+     */
+    int lockCacheSize() default 0;
+
+    /**
+     * 粘性锁停放时长，单位毫秒。大于0时单锁模板使用粘性模式，释放锁后在本节点停放该时长，期间本节点再次加锁无需访问Redis。
+     * 小于等于0时不开启。默认0。
+     */
+    long stickyParkTime() default 0;
+
+    /**
+     * 锁占用近端缓存的最大缓存时长，单位毫秒。大于0时开启，快速失败加锁（waitTime小于等于0）失败后，
+     * 记录锁被占用，有效期内同名锁的快速失败加锁直接在本地拒绝，解锁通知到达时失效。小于等于0时不开启。默认0。
+     */
+    long negativeCacheTtl() default 0;
+
+    /**
+     * 应用命名空间，会作为前缀添加到Redis中的锁key上。默认为空，不添加。
+     */
+    String namespace() default "";
+
+    /**
+     * 锁名称长度阈值，超过时在Redis中使用定长摘要作为锁key，减少内存占用。小于等于0时不替换。默认0。
+     */
+    int keyDigestThreshold() default 0;
+
+    /**
+     * 摘要key反查表的容量，大于0时记录摘要key对应的锁名称，日志及监控可通过摘要key反查锁名称；
+     * 开启后每次生成摘要key都会访问反查表。小于等于0时不记录。默认0。
+     */
+    int keyReverseMapSize() default 0;
+
+    /**
+     * 缓存加载锁的等待时间，单位毫秒。大于0时开启缓存防击穿，容器中的CacheManager会被包装，
+     * <code>@Cacheable(sync = true)</code>缓存未命中时通过分布式锁保证集群中只有一个节点加载，其他节点等待后读取缓存；
+     * 等待超时时直接加载。开启后CacheManager Bean的类型会变为LockingCacheManager。小于等于0时不开启。默认0。
+     */
+    long cacheLockWaitTime() default 0;
+
+    /**
+     * 集群单例的领导租约时长，单位毫秒。领导每1/3租约时长续期一次，领导宕机后最迟约一个租约时长后由其他节点接任。默认30000。
+     */
+    long leaderLeaseTime() default 30000;
+
 }
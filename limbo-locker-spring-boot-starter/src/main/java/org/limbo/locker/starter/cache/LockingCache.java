@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.starter.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.limbo.locker.core.LockTemplate;
+import org.redisson.api.RLock;
+import org.springframework.cache.Cache;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * 防缓存击穿的缓存装饰器。缓存未命中时，通过分布式锁保护加载过程，加锁成功后再次读取缓存，
+ * 保证集群中只有一个节点加载缺失的缓存，其他节点等待锁后直接读取加载结果。
+ * 只对 {@link #get(Object, Callable)} 生效，因此需配合 <code>@Cacheable(sync = true)</code> 使用。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+@Slf4j
+public class LockingCache implements Cache {
+
+    /**
+     * 缓存加载锁名前缀
+     */
+    public static final String LOCK_NAME_PREFIX = "limbo_locker__cache:";
+
+    /**
+     * 被装饰的缓存
+     */
+    private final Cache delegate;
+
+    /**
+     * 加锁模板
+     */
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 等待其他节点加载缓存的最长时间，单位毫秒
+     */
+    private final long waitTime;
+
+
+    public LockingCache(Cache delegate, LockTemplate lockTemplate, long waitTime) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.waitTime = waitTime;
+    }
+
+
+    /**
+     * 获取被装饰的缓存
+     */
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 缓存未命中时，加分布式锁后再次读取缓存，仍未命中才执行加载。
+     * 等待超时仍未获取到锁时，不再等待其他节点，直接在本节点加载。
+     * @param key 缓存key
+     * @param valueLoader 缓存加载回调
+     * @return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+
+        RLock lock = lockTemplate.getLock(LOCK_NAME_PREFIX + getName() + ":" + key);
+        if (!lockTemplate.tryLock(lock, 1, waitTime, -1)) {
+            log.warn("[redisson.locker] 等待缓存加载锁超时，直接加载 cache={} key={}", getName(), key);
+            return load(key, valueLoader);
+        }
+
+        try {
+            // 加锁成功后再次读取，其他节点可能已在持有锁期间加载完成
+            cached = delegate.get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            return load(key, valueLoader);
+        } finally {
+            lockTemplate.release(lock);
+        }
+    }
+
+
+    /**
+     * 执行加载回调，并写入缓存
+     */
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+
+        delegate.put(key, value);
+        return value;
+    }
+
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.starter.cache;
+
+import org.limbo.locker.core.LockTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 防缓存击穿的缓存管理器装饰器，将被装饰的缓存管理器返回的缓存包装为{@link LockingCache}。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class LockingCacheManager implements CacheManager {
+
+    /**
+     * 被装饰的缓存管理器
+     */
+    private final CacheManager delegate;
+
+    /**
+     * 加锁模板
+     */
+    private final LockTemplate lockTemplate;
+
+    /**
+     * 等待其他节点加载缓存的最长时间，单位毫秒
+     */
+    private final long waitTime;
+
+    /**
+     * 已包装的缓存
+     */
+    private final Map<String, LockingCache> caches = new ConcurrentHashMap<>(16);
+
+
+    public LockingCacheManager(CacheManager delegate, LockTemplate lockTemplate, long waitTime) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.lockTemplate = Objects.requireNonNull(lockTemplate, "lockTemplate");
+        this.waitTime = waitTime;
+    }
+
+
+    /**
+     * 获取被装饰的缓存管理器
+     */
+    public CacheManager getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null) {
+            return null;
+        }
+
+        // 被装饰的缓存管理器可能重建缓存，缓存实例变化时重新包装
+        LockingCache lockingCache = caches.get(name);
+        if (lockingCache == null || lockingCache.getDelegate() != cache) {
+            lockingCache = new LockingCache(cache, lockTemplate, waitTime);
+            caches.put(name, lockingCache);
+        }
+        return lockingCache;
+    }
+
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+}
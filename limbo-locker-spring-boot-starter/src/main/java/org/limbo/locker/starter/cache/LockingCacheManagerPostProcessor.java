@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2024 Limbo Team (https://github.com/limbo-world).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.limbo.locker.starter.cache;
+
+import org.limbo.locker.core.LockTemplate;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 将容器中的{@link CacheManager}包装为{@link LockingCacheManager}，为缓存加载增加防击穿保护。<br/>
+ * 后置处理器会被提前实例化，依赖均延迟获取，只在处理{@link CacheManager}时才会解析。
+ *
+ * @author Brozen
+ * @since 1.0
+ */
+public class LockingCacheManagerPostProcessor implements BeanPostProcessor {
+
+    /**
+     * 加锁模板，延迟获取，避免提前初始化加锁模板及其依赖
+     */
+    private final ObjectProvider<LockTemplate> lockTemplate;
+
+    /**
+     * 等待其他节点加载缓存的最长时间，单位毫秒，小于等于0时不包装。延迟获取
+     */
+    private final LongSupplier waitTime;
+
+
+    public LockingCacheManagerPostProcessor(ObjectProvider<LockTemplate> lockTemplate, LongSupplier waitTime) {
+        this.lockTemplate = lockTemplate;
+        this.waitTime = waitTime;
+    }
+
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof CacheManager) || bean instanceof LockingCacheManager) {
+            return bean;
+        }
+
+        long cacheLockWaitTime = waitTime.getAsLong();
+        if (cacheLockWaitTime <= 0) {
+            return bean;
+        }
+        return new LockingCacheManager((CacheManager) bean, lockTemplate.getObject(), cacheLockWaitTime);
+    }
+
+}
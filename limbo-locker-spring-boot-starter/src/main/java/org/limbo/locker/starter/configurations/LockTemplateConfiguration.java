@@ -16,9 +16,14 @@
 
 package org.limbo.locker.starter.configurations;
 
+import org.limbo.locker.core.LockCache;
+import org.limbo.locker.core.LockKeyEncoder;
+import org.limbo.locker.core.LockShardRouter;
 import org.limbo.locker.core.LockTemplate;
 import org.limbo.locker.core.MultiLockTemplate;
+import org.limbo.locker.core.NegativeLockCache;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -31,20 +36,68 @@ import org.springframework.context.annotation.Primary;
 public class LockTemplateConfiguration {
 
 
+    /**
+     * 应用声明了{@link LockShardRouter} Bean时，锁按key路由到多个Redis部署，RedissonClient只用于非锁数据及通知
+     */
     @Bean
     @Primary
-    public LockTemplate lockTemplate(RedissonClient redisson) {
-        LockTemplate template = new LockTemplate();
+    public LockTemplate lockTemplate(RedissonClient redisson, ObjectProvider<LockShardRouter> shardRouter) {
+        LockShardRouter router = shardRouter.getIfAvailable();
+        LockTemplate template = newLockTemplate();
         template.setRedisson(redisson);
+        template.setLockCache(createLockCache());
+        template.setKeyEncoder(createLockKeyEncoder());
+        template.setShardRouter(router);
+
+        NegativeLockCache negativeLockCache = createNegativeLockCache(redisson);
+        if (negativeLockCache != null) {
+            negativeLockCache.setShardRouter(router);
+        }
+        template.setNegativeLockCache(negativeLockCache);
         return template;
     }
 
 
     @Bean
-    public MultiLockTemplate multiLockTemplate(RedissonClient redisson) {
+    public MultiLockTemplate multiLockTemplate(RedissonClient redisson, ObjectProvider<LockShardRouter> shardRouter) {
         MultiLockTemplate template = new MultiLockTemplate();
         template.setRedisson(redisson);
+        template.setLockCache(createLockCache());
+        template.setKeyEncoder(createLockKeyEncoder());
+        template.setShardRouter(shardRouter.getIfAvailable());
         return template;
     }
 
+
+    /**
+     * 生成单锁加锁模板实例
+     */
+    protected LockTemplate newLockTemplate() {
+        return new LockTemplate();
+    }
+
+
+    /**
+     * 生成加锁模板使用的锁对象缓存，返回null时不缓存锁对象
+     */
+    protected LockCache createLockCache() {
+        return null;
+    }
+
+
+    /**
+     * 生成加锁模板使用的锁key编码器，返回null时直接使用锁名称作为Redis key
+     */
+    protected LockKeyEncoder createLockKeyEncoder() {
+        return null;
+    }
+
+
+    /**
+     * 生成单锁加锁模板使用的锁占用近端缓存，返回null时不缓存
+     */
+    protected NegativeLockCache createNegativeLockCache(RedissonClient redisson) {
+        return null;
+    }
+
 }
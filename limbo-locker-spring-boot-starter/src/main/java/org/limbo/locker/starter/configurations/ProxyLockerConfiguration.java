@@ -16,17 +16,23 @@
 
 package org.limbo.locker.starter.configurations;
 
+import org.limbo.locker.core.LeaderElector;
 import org.limbo.locker.core.LockTemplate;
 import org.limbo.locker.core.MultiLockTemplate;
+import org.limbo.locker.core.RedLockTemplate;
 import org.limbo.locker.core.attribute.AnnotationLockAttributeSource;
 import org.limbo.locker.core.attribute.LockAttributeSource;
 import org.limbo.locker.core.evaluation.DefaultNameEvaluationContextFactory;
 import org.limbo.locker.core.evaluation.NameEvaluationContextFactory;
 import org.limbo.locker.core.evaluation.NameEvaluator;
 import org.limbo.locker.core.evaluation.spel.SpELNameEvaluator;
+import org.limbo.locker.core.interceptor.ClusterSingletonAdvisor;
+import org.limbo.locker.core.interceptor.ClusterSingletonInterceptor;
 import org.limbo.locker.core.interceptor.LockAdvisor;
 import org.limbo.locker.core.interceptor.LockInterceptor;
 import org.limbo.locker.starter.AbstractLockerConfiguration;
+import org.limbo.locker.starter.cache.LockingCacheManagerPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -81,15 +87,69 @@ public class ProxyLockerConfiguration extends AbstractLockerConfiguration {
     @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
     public LockInterceptor lockInterceptor(NameEvaluator nameEvaluator, LockAttributeSource lockAttributeSource,
                                            LockTemplate lockTemplate, MultiLockTemplate multiLockTemplate,
+                                           ObjectProvider<RedLockTemplate> redLockTemplate,
                                            NameEvaluationContextFactory nameEvaluationContextFactory) {
         LockInterceptor interceptor = new LockInterceptor();
         interceptor.setNameEvaluator(nameEvaluator);
         interceptor.setLockAttributeSource(lockAttributeSource);
         interceptor.setLockTemplate(lockTemplate);
         interceptor.setMultiLockTemplate(multiLockTemplate);
+        // Redlock需要多个独立的RedissonClient，由应用自行声明RedLockTemplate Bean
+        interceptor.setRedLockTemplate(redLockTemplate.getIfAvailable());
         interceptor.setNameEvaluationContextFactory(nameEvaluationContextFactory);
         return interceptor;
     }
 
 
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public ClusterSingletonAdvisor clusterSingletonAdvisor(ClusterSingletonInterceptor clusterSingletonInterceptor) {
+        ClusterSingletonAdvisor advisor = new ClusterSingletonAdvisor();
+        advisor.setAdvice(clusterSingletonInterceptor);
+
+        // 先于锁切面执行，非领导节点跳过时不会再尝试加锁
+        if (enableLocker != null) {
+            advisor.setOrder(enableLocker.<Integer>getNumber("aspectOrder") - 1);
+        }
+
+        return advisor;
+    }
+
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public ClusterSingletonInterceptor clusterSingletonInterceptor(LeaderElector leaderElector) {
+        ClusterSingletonInterceptor interceptor = new ClusterSingletonInterceptor();
+        interceptor.setLeaderElector(leaderElector);
+        return interceptor;
+    }
+
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public LeaderElector leaderElector(LockTemplate lockTemplate) {
+        long leaderLeaseTime = enableLocker == null ? 30000 : enableLocker.<Long>getNumber("leaderLeaseTime");
+        return new LeaderElector(lockTemplate, leaderLeaseTime);
+    }
+
+
+    /**
+     * 后置处理器需使用静态方法声明，防止提前实例化配置类，导致配置类中的Bean无法被其他后置处理器处理
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static LockingCacheManagerPostProcessor lockingCacheManagerPostProcessor(
+            ObjectProvider<LockTemplate> lockTemplate, ObjectProvider<ProxyLockerConfiguration> configuration) {
+        return new LockingCacheManagerPostProcessor(lockTemplate, () -> configuration.getObject().getCacheLockWaitTime());
+    }
+
+
+    /**
+     * 读取 {@link org.limbo.locker.starter.annotations.EnableLocker#cacheLockWaitTime()}
+     */
+    public long getCacheLockWaitTime() {
+        return enableLocker == null ? 0 : enableLocker.<Long>getNumber("cacheLockWaitTime");
+    }
+
+
 }